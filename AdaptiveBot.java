@@ -17,8 +17,8 @@ import java.util.Random;
  * This example provides two environment variables: the number of neutral planets on the map, and the average growth
  * ratio of these neutral planets.
  * <p>
- * We provide a possible implementation using the hash adaptivityMap, which maps lists of integers (representing
- * the environment) with names of bots. See AdaptivityMap.java
+ * We provide a possible implementation using AdaptivityMap, which maps the environment to a Strategy.
+ * Its table is loaded at startup from the file AdaptivityTrainer writes, see AdaptivityMap.java
  * <p>
  * Interesting questions (you can probably come up with other questions yourself as well):
  * 1. Can you modify or extend the environment variables we use?
@@ -37,6 +37,19 @@ import java.util.Random;
  */
 public class AdaptiveBot implements Bot {
 
+    /**
+     * Strategy per environment, loaded at startup
+     */
+    private final AdaptivityMap adaptivityMap;
+
+    public AdaptiveBot() {
+        this(AdaptivityMap.loadDefault());
+    }
+
+    AdaptiveBot(AdaptivityMap adaptivityMap) {
+        this.adaptivityMap = adaptivityMap;
+    }
+
     public static void main(String[] args) {
         GameClient.run(new AdaptiveBot());
     }
@@ -49,33 +62,29 @@ public class AdaptiveBot implements Bot {
      */
     public void doTurn(PlanetWars pw) {
 
-        // Retrieve environment characteristics
+        // Retrieve environment characteristics and use AdaptivityMap to get the strategy that matches them
         // Are there characteristics you want to use instead, or are there more you'd like to use? Try it out!
-        int neutralPlanets = pw.getNeutralPlanets().size();
-        int totalPlanetSize = 0;
-        for (Planet p : pw.getNeutralPlanets()) {
-            totalPlanetSize += p.getGrowthRate();
-        }
-        int averagePlanetSize = Math.round(totalPlanetSize / pw.getNeutralPlanets().size());
-
-        // Use AdaptivityMap to get the bot which matches the current environment characteristics
-        String thisTurnBot = AdaptivityMap.get(neutralPlanets, averagePlanetSize);
+        Strategy thisTurnStrategy = adaptivityMap.get(pw.getState());
 
-        if (thisTurnBot == null) {
+        if (thisTurnStrategy == null) {
             pw.log("WARNING: You have not entered bot data for this case. Using default bot");
             doRandomBotTurn(pw);
-        } else {
-            if (thisTurnBot.equals("BullyBot")) {
+            return;
+        }
+
+        switch (thisTurnStrategy) {
+            case BULLY_BOT:
                 pw.log("BullyBot is going to play this turn");
                 doBullyBotTurn(pw);
-            } else if (thisTurnBot.equals("RandomBot")) {
+                break;
+            case RANDOM_BOT:
                 pw.log("RandomBot is going to play this turn");
                 doRandomBotTurn(pw);
-            } else {
-                pw.log("WARNING: Adaptivity map wants", thisTurnBot,
+                break;
+            default:
+                pw.log("WARNING: Adaptivity map wants", thisTurnStrategy.getBotName(),
                     "to play this turn, but this strategy is not implemented in this bot! Using default bot");
                 doRandomBotTurn(pw);
-            }
         }
     }
 
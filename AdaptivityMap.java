@@ -1,3 +1,11 @@
+import planetWarsAPI.GameState;
+import planetWarsAPI.PlanetWars;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
 /**
  * An adaptivity map implementation
  * <p/>
@@ -5,62 +13,200 @@
  * - number of neutral planets
  * - average growth ratio of neutral planets
  * <p/>
- * We use these to determine what bot to use.
+ * We use these to determine what strategy to use.
  * <p/>
- * The first upper left element of the botValue can be read as: "given that the map has 0 neutral planets
+ * The first upper left element of the table can be read as: "given that the map has 0 neutral planets
  * and that the average growth rate of the neutral planets in the map is 0, then use the RandomBot";
  * the next element to the right: "given 0 neutral planets and an average growth of 1, use BullyBot;
  * one down the upper left: given 1 neutral planet and average growth 0, use RandomBot";
  * <p/>
- * The given example is random and does not have to be smart at all. We recommend start editing this array to
- * get used to adaptivity and discover which other features would make your bot more smartly adaptive.
+ * The built-in table is random and does not have to be smart at all. A table measured from played games is made by
+ * AdaptivityTrainer, which writes it as a CSV file with a line per environment:
+ * <pre>
+ * neutralPlanets,averageGrowth,strategy,winRate,games
+ * 3,2,BullyBot,0.8125,64
+ * </pre>
+ * Environments missing from the file keep the strategy of the built-in table. Environments are counted up to
+ * MAX_NEUTRAL_PLANETS and MAX_AVERAGE_GROWTH, larger ones share the last bucket, both when training and playing.
  *
  * @author Jur van den Berg
  * @author Arthur de Fluiter
  * @version 3.0
+ * @see AdaptivityTrainer
  */
 class AdaptivityMap {
-    private static String[][] botValue = {
+    /**
+     * First line of a table file
+     */
+    static final String HEADER = "neutralPlanets,averageGrowth,strategy,winRate,games";
+
+    /**
+     * System property with the table file AdaptiveBot loads, and the file used when it is not set
+     */
+    static final String FILE_PROPERTY = "adaptivity.map";
+    static final String DEFAULT_FILE = "adaptivity.csv";
+
+    /**
+     * Largest environment characteristics told apart, larger ones count as these
+     */
+    static final int MAX_NEUTRAL_PLANETS = 30;
+    static final int MAX_AVERAGE_GROWTH = 5;
+
+    private static final Strategy B = Strategy.BULLY_BOT;
+    private static final Strategy R = Strategy.RANDOM_BOT;
+
+    private static final Strategy[][] DEFAULT_TABLE = {
         // Average growth ratio of:
-        //    0            1            2            3            4            5
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"}, // 1 neutral planet
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"}, // 0 neutral planets on the map
-        {"BullyBot",  "RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot"}, // 2 neutral planets
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "RandomBot"},// ...
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "RandomBot", "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "BullyBot",  "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "RandomBot", "RandomBot"},
-        {"BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"BullyBot",  "BullyBot",  "RandomBot", "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "BullyBot",  "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "RandomBot", "BullyBot"},
-        {"RandomBot", "BullyBot",  "RandomBot", "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"BullyBot",  "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "RandomBot", "RandomBot", "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"BullyBot",  "RandomBot", "BullyBot",  "RandomBot", "BullyBot",  "RandomBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"RandomBot", "BullyBot",  "BullyBot",  "RandomBot", "BullyBot",  "BullyBot"},
-        {"BullyBot",  "RandomBot", "BullyBot",  "BullyBot",  "BullyBot",  "BullyBot"} //25
+        // 0  1  2  3  4  5
+        {R, B, B, R, B, B}, // 0 neutral planets
+        {R, B, B, R, B, B}, // 1 neutral planet
+        {B, R, B, B, R, B}, // 2 neutral planets
+        {R, B, B, R, B, R}, // ...
+        {R, B, B, R, B, B},
+        {R, B, R, R, B, R},
+        {R, B, B, B, B, B},
+        {R, B, B, R, R, R},
+        {B, B, R, B, B, B},
+        {R, B, B, R, B, R},
+        {R, B, B, R, B, B},
+        {B, B, R, R, B, R},
+        {R, B, B, R, B, B},
+        {R, B, B, B, B, B},
+        {R, B, B, R, B, R},
+        {R, B, B, R, R, B},
+        {R, B, R, R, B, R},
+        {R, B, B, R, B, B},
+        {R, B, B, R, B, B},
+        {B, B, B, R, B, R},
+        {R, B, R, R, B, B},
+        {R, B, B, R, B, B},
+        {B, R, B, R, B, R},
+        {R, B, B, R, B, B},
+        {R, B, B, R, B, B},
+        {B, R, B, B, B, B} // 25 neutral planets
     };
 
     /**
-     * Get the bot name for these environment characteristics
+     * Strategy per number of neutral planets and average growth
+     */
+    private Strategy[][] table;
+
+    /**
+     * Create a map with the built-in table
+     */
+    AdaptivityMap() {
+        table = new Strategy[DEFAULT_TABLE.length][];
+        for (int i = 0; i < table.length; i++)
+            table[i] = DEFAULT_TABLE[i].clone();
+    }
+
+    /**
+     * Load the table file named by the adaptivity.map system property, or adaptivity.csv in the working directory.
+     * Without such a file, the built-in table is used.
+     */
+    static AdaptivityMap loadDefault() {
+        File file = new File(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+        if (!file.isFile())
+            return new AdaptivityMap();
+
+        try {
+            return load(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Load a table written by AdaptivityTrainer, on top of the built-in table
+     *
+     * @param file the CSV file
+     * @return the map
      */
-    public static String get(int neutralPlanets, int planetsSize) {
+    static AdaptivityMap load(File file) throws IOException {
+        AdaptivityMap map = new AdaptivityMap();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.equals(HEADER))
+                    continue;
+
+                String[] fields = line.split(",");
+                Strategy strategy = fields.length < 3 ? null : Strategy.forBotName(fields[2].trim());
+                if (strategy == null)
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": not a strategy line: " + line);
+                map.set(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()), strategy);
+            }
+        } finally {
+            reader.close();
+        }
+        return map;
+    }
+
+    /**
+     * Set the strategy for these environment characteristics, growing the table when needed
+     */
+    void set(int neutralPlanets, int averageGrowth, Strategy strategy) {
+        if (neutralPlanets < 0 || averageGrowth < 0)
+            throw new IllegalArgumentException("Negative environment: " + neutralPlanets + ", " + averageGrowth);
+
+        if (neutralPlanets >= table.length) {
+            Strategy[][] grown = new Strategy[neutralPlanets + 1][];
+            System.arraycopy(table, 0, grown, 0, table.length);
+            for (int i = table.length; i < grown.length; i++)
+                grown[i] = new Strategy[0];
+            table = grown;
+        }
+        if (averageGrowth >= table[neutralPlanets].length) {
+            Strategy[] grown = new Strategy[averageGrowth + 1];
+            System.arraycopy(table[neutralPlanets], 0, grown, 0, table[neutralPlanets].length);
+            table[neutralPlanets] = grown;
+        }
+        table[neutralPlanets][averageGrowth] = strategy;
+    }
+
+    /**
+     * Get the strategy for these environment characteristics
+     *
+     * @return the strategy, or null if the table has none for them
+     */
+    Strategy get(int neutralPlanets, int averageGrowth) {
         // if it can't find the proper index
-        if (neutralPlanets < 0 || neutralPlanets > botValue.length ||
-            planetsSize < 0 || planetsSize > botValue[neutralPlanets].length) {
+        if (neutralPlanets < 0 || neutralPlanets >= table.length ||
+            averageGrowth < 0 || averageGrowth >= table[neutralPlanets].length) {
             return null;
         }
 
-        return botValue[neutralPlanets][planetsSize];
+        return table[neutralPlanets][averageGrowth];
+    }
+
+    /**
+     * Get the strategy for the environment of a game state
+     *
+     * @return the strategy, or null if the table has none for it
+     */
+    Strategy get(GameState state) {
+        return get(neutralPlanets(state), averageGrowth(state));
+    }
+
+    /**
+     * Return the number of neutral planets, at most MAX_NEUTRAL_PLANETS, the first environment characteristic
+     */
+    static int neutralPlanets(GameState state) {
+        return Math.min(state.countPlanets(PlanetWars.NEUTRAL), MAX_NEUTRAL_PLANETS);
+    }
+
+    /**
+     * Return the average growth rate of the neutral planets, rounded down as the built-in table expects,
+     * and at most MAX_AVERAGE_GROWTH, or 0 without neutral planets
+     */
+    static int averageGrowth(GameState state) {
+        int neutralPlanets = state.countPlanets(PlanetWars.NEUTRAL);
+        if (neutralPlanets == 0)
+            return 0;
+        return Math.min(state.getPlayerGrowth(PlanetWars.NEUTRAL) / neutralPlanets, MAX_AVERAGE_GROWTH);
     }
 }
@@ -0,0 +1,249 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameState;
+import planetWarsAPI.MapGenerator;
+import planetWarsAPI.MatchEngine;
+import planetWarsAPI.MatchResult;
+import planetWarsAPI.PlanetWars;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * AdaptivityTrainer
+ * Fills the table of AdaptivityMap from played games, instead of by hand.
+ * <p>
+ * Every strategy plays against the bot of every strategy on many random maps, from both sides. Each turn the
+ * environment the strategy sees, its number of neutral planets and their average growth, is recorded. When the game
+ * is over its result counts once for every environment the strategy played in, so per environment and strategy
+ * the trainer knows the number of games and wins. The strategy with the highest win rate in an environment, with a
+ * draw counting as half a win, goes in the table. Environments with too few games are left out, AdaptiveBot uses the
+ * built-in table for them.
+ * <p>
+ * The table is written as a CSV file, which AdaptiveBot loads at startup (see {@link AdaptivityMap}).
+ * The -games option sets the number of maps; every map is played by every pair of strategies from both sides.
+ * <p>
+ * Usage:
+ * <pre>
+ * java AdaptivityTrainer [-games N] [-threads N] [-turns N] [-minGames N] [-seed N] [-out file]
+ * </pre>
+ * Example:
+ * <pre>
+ * java AdaptivityTrainer -games 2000 -out adaptivity.csv
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class AdaptivityTrainer {
+
+    /**
+     * Range of the number of planets of the generated maps
+     */
+    private static final int MIN_PLANETS = 4;
+    private static final int MAX_PLANETS = 30;
+
+    /**
+     * Environments are counted up to these values, larger ones share the last bucket
+     */
+    private static final int MAX_NEUTRAL_PLANETS = AdaptivityMap.MAX_NEUTRAL_PLANETS;
+    private static final int MAX_AVERAGE_GROWTH = AdaptivityMap.MAX_AVERAGE_GROWTH;
+
+    private static final Strategy[] STRATEGIES = Strategy.values();
+
+    private final ExecutorService executor;
+    private final ThreadLocal<MatchEngine> engines;
+
+    /**
+     * Games and points per environment and strategy, entry (neutralPlanets * (MAX_AVERAGE_GROWTH + 1)
+     * + averageGrowth) * STRATEGIES.length + strategy.ordinal()
+     */
+    private final int[] games = new int[(MAX_NEUTRAL_PLANETS + 1) * (MAX_AVERAGE_GROWTH + 1) * STRATEGIES.length];
+    private final double[] points = new double[games.length];
+
+    public AdaptivityTrainer(final int maxTurns, int threads) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.engines = new ThreadLocal<MatchEngine>() {
+            @Override
+            protected MatchEngine initialValue() {
+                return new MatchEngine(maxTurns);
+            }
+        };
+    }
+
+    /**
+     * Plays a strategy and records every environment it plays in
+     */
+    private static final class RecordingBot implements Bot {
+        private final Bot bot;
+        private final boolean[] visited = new boolean[(MAX_NEUTRAL_PLANETS + 1) * (MAX_AVERAGE_GROWTH + 1)];
+
+        RecordingBot(Bot bot) {
+            this.bot = bot;
+        }
+
+        public void doTurn(PlanetWars pw) {
+            visited[environment(pw.getState())] = true;
+            bot.doTurn(pw);
+        }
+    }
+
+    /**
+     * Index of the environment of a state
+     */
+    private static int environment(GameState state) {
+        return AdaptivityMap.neutralPlanets(state) * (MAX_AVERAGE_GROWTH + 1) + AdaptivityMap.averageGrowth(state);
+    }
+
+    /**
+     * Play every strategy against every strategy on a number of random maps, from both sides
+     *
+     * @param numMaps number of maps
+     * @param seed    seed of the maps, the same seed gives the same maps
+     */
+    public void run(int numMaps, long seed) throws InterruptedException {
+        Random random = new Random(seed);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+
+        try {
+            for (int m = 0; m < numMaps; m++) {
+                int numPlanets = MIN_PLANETS + random.nextInt(MAX_PLANETS - MIN_PLANETS + 1);
+                final GameState map = MapGenerator.generate(numPlanets, random.nextLong());
+
+                for (final Strategy strategy : STRATEGIES) {
+                    for (final Strategy opponent : STRATEGIES) {
+                        for (final int seat : new int[]{1, 2}) {
+                            results.add(executor.submit(new Callable<Void>() {
+                                public Void call() {
+                                    play(strategy, opponent, seat, map);
+                                    return null;
+                                }
+                            }));
+                        }
+                    }
+                }
+            }
+
+            for (Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void play(Strategy strategy, Strategy opponent, int seat, GameState map) {
+        RecordingBot recorder = new RecordingBot(Tournament.createBot(strategy.getBotName()));
+        Bot other = Tournament.createBot(opponent.getBotName());
+        MatchResult result = seat == 1 ? engines.get().play(recorder, other, map)
+            : engines.get().play(other, recorder, map);
+        double score = result.getWinner() == 0 ? 0.5 : result.getWinner() == seat ? 1.0 : 0.0;
+
+        synchronized (this) {
+            for (int environment = 0; environment < recorder.visited.length; environment++) {
+                if (recorder.visited[environment]) {
+                    int entry = environment * STRATEGIES.length + strategy.ordinal();
+                    games[entry]++;
+                    points[entry] += score;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the best strategy of every environment with enough games to a CSV file.
+     * A new file replaces the old one at once, so AdaptiveBot never loads half a table.
+     *
+     * @param file     the file
+     * @param minGames fewest games every strategy needs in an environment to include it
+     * @return number of environments written
+     */
+    public synchronized int write(File file, int minGames) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        PrintWriter out = new PrintWriter(temporary, "UTF-8");
+        int written = 0;
+        try {
+            out.println(AdaptivityMap.HEADER);
+            for (int neutralPlanets = 0; neutralPlanets <= MAX_NEUTRAL_PLANETS; neutralPlanets++) {
+                for (int averageGrowth = 0; averageGrowth <= MAX_AVERAGE_GROWTH; averageGrowth++) {
+                    int base = (neutralPlanets * (MAX_AVERAGE_GROWTH + 1) + averageGrowth) * STRATEGIES.length;
+                    Strategy best = null;
+                    double bestRate = -1;
+                    int bestGames = 0;
+                    for (Strategy strategy : STRATEGIES) {
+                        int entry = base + strategy.ordinal();
+                        if (games[entry] < minGames) {
+                            best = null;
+                            break;
+                        }
+                        double rate = points[entry] / games[entry];
+                        if (rate > bestRate) {
+                            best = strategy;
+                            bestRate = rate;
+                            bestGames = games[entry];
+                        }
+                    }
+
+                    if (best != null) {
+                        out.println(String.format(Locale.US, "%d,%d,%s,%.4f,%d",
+                            neutralPlanets, averageGrowth, best.getBotName(), bestRate, bestGames));
+                        written++;
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int numMaps = 500;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxTurns = MatchEngine.DEFAULT_MAX_TURNS;
+        int minGames = 20;
+        long seed = System.nanoTime();
+        String outFile = AdaptivityMap.DEFAULT_FILE;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-games"))
+                numMaps = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-turns"))
+                maxTurns = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-minGames"))
+                minGames = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-out"))
+                outFile = args[++i];
+            else {
+                System.err.println("Usage: java AdaptivityTrainer [-games N] [-threads N] [-turns N] [-minGames N]"
+                    + " [-seed N] [-out file]");
+                System.exit(1);
+            }
+        }
+
+        AdaptivityTrainer trainer = new AdaptivityTrainer(maxTurns, threads);
+        long start = System.nanoTime();
+        trainer.run(numMaps, seed);
+        int written = trainer.write(new File(outFile), minGames);
+        System.out.println(String.format(Locale.US, "Played %d maps in %.1f s, wrote %d environments to %s",
+            numMaps, (System.nanoTime() - start) / 1e9, written, outFile));
+    }
+}
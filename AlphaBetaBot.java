@@ -0,0 +1,79 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameClient;
+import planetWarsAPI.PlanetWars;
+
+/**
+ * AlphaBetaBot
+ * A bot which looks ahead as far as its time allows, using AlphaBetaSearch.
+ * <p>
+ * Where LookaheadBot always looks exactly one move ahead for each player, this bot searches deeper and deeper
+ * (iterative deepening) until its time budget for the turn is spent, and then plays the best move of the
+ * deepest search it finished. The enemy is assumed to play any attack, not just the BullyBot one, and both
+ * players may also attack a planet from all their planets at once.
+ * <p>
+ * Things to try:
+ * - What is a good time budget? What happens if you make it too large?
+ * - Is it better to assume the enemy plays like BullyBot (MoveGenerator.BULLY_BOT), or to consider all its moves?
+ *
+ * @version 1.0
+ */
+public class AlphaBetaBot implements Bot {
+
+    /**
+     * Time we allow ourselves to think each turn, in milliseconds
+     */
+    private static final long TURN_BUDGET_MILLIS = 500;
+
+    /**
+     * Maximum search depth, in plies
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private final AlphaBetaSearch search;
+
+    /**
+     * Size of the transposition table of a shallow search, as a power of two
+     */
+    private static final int SHALLOW_TABLE_SIZE = 14;
+
+    public AlphaBetaBot() {
+        search = new AlphaBetaSearch(MoveGenerator.COMBINED_ATTACKS, MoveGenerator.COMBINED_ATTACKS);
+        search.setMaxDepth(MAX_DEPTH);
+    }
+
+    /**
+     * Create a bot with its own evaluation function, searching to a fixed depth.
+     * A shallow search is quick and gives the same move every time, which is what Tuner needs.
+     *
+     * @param evaluator scores the states of the search
+     * @param maxDepth  maximum search depth, in plies
+     */
+    public AlphaBetaBot(Evaluator evaluator, int maxDepth) {
+        search = new AlphaBetaSearch(MoveGenerator.COMBINED_ATTACKS, MoveGenerator.COMBINED_ATTACKS);
+        search.setMaxDepth(maxDepth);
+        search.setEvaluator(evaluator);
+        search.setTranspositionTable(new TranspositionTable(SHALLOW_TABLE_SIZE));
+    }
+
+    /**
+     * Function that gets called every turn.
+     * This is where you add your implementation
+     *
+     * @param pw The game state
+     */
+    public void doTurn(PlanetWars pw) {
+        // Stop at our own budget, or earlier if the turn clock says so
+        long deadline = Math.min(System.nanoTime() + TURN_BUDGET_MILLIS * 1000000L,
+            pw.getTurnClock().getDeadline());
+        int move = search.search(pw, deadline);
+
+        // If you want to see how deep the search got, uncomment the following line:
+        // pw.log("Depth:", search.getCompletedDepth(), "Nodes:", search.getNodes(), "Score:", search.getBestScore());
+
+        SimulatedPlanetWars.issueMove(pw, move);
+    }
+
+    public static void main(String[] args) {
+        GameClient.run(new AlphaBetaBot());
+    }
+}
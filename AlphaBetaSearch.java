@@ -0,0 +1,429 @@
+import planetWarsAPI.PlanetWars;
+
+import java.util.Arrays;
+
+/**
+ * AlphaBetaSearch
+ * A reusable minimax search with alpha-beta pruning, which generalizes the fixed look-ahead of LookaheadBot.
+ * <p>
+ * The search alternates plies of the player and the enemy. Each ply applies one move of the player to move
+ * and one growth step, exactly like LookaheadBot simulates its turns. Which moves are considered for each side
+ * is decided by a MoveGenerator, so LookaheadBot itself is a depth 2 search with ALL_ATTACKS for us and
+ * BULLY_BOT for the enemy.
+ * <p>
+ * The search runs with iterative deepening: it searches depth 1, 2, 3, ... until the maximum depth is reached
+ * or the deadline passes. The move returned is always the best move of the deepest iteration that completed.
+ * Moves are ordered by a static evaluation (and at the root, by the scores of the previous iteration)
+ * so the best moves are usually tried first, which lets alpha-beta prune much more.
+ * <p>
+ * States are scored by an Evaluator, by default a WeightedEvaluator that compares the ships of both players
+ * like LookaheadBot does.
+ * <p>
+ * Results are kept in a TranspositionTable, keyed on the Zobrist hash of the simulated state. When a state is
+ * reached again through another order of moves, the stored result is reused instead of searched again, and
+ * the stored best move is tried first.
+ *
+ * @version 1.0
+ */
+public class AlphaBetaSearch {
+
+    /**
+     * Number of evaluations between two looks at the clock. Leaves and the scoring of moves to order them
+     * are evaluations; they are where the time goes.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 256;
+
+    /**
+     * Number of moves the buffer of a ply has room for at first
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Default size of the transposition table, as a power of two
+     */
+    private static final int DEFAULT_TABLE_SIZE = 18;
+
+    private final MoveGenerator playerMoves;
+    private final MoveGenerator enemyMoves;
+    private int maxDepth = 4;
+    private TranspositionTable table = new TranspositionTable(DEFAULT_TABLE_SIZE);
+    private Evaluator evaluator = new WeightedEvaluator();
+
+    // Search state, valid during a call of search(). The simulation is kept, to be moved on to the next turn.
+    private SimulatedPlanetWars simpw;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private long evaluations;
+    private long tableHits;
+
+    // Per ply buffers, grown to the largest number of moves seen, so the search itself rarely allocates
+    private int[][] moveBuffers = new int[0][];
+    private double[][] scoreBuffers = new double[0][];
+    private int[] sortMoves = new int[0];
+    private double[] sortScores = new double[0];
+    private final int[] chunkMoves = new int[CLOCK_CHECK_INTERVAL];
+    private final double[] chunkScores = new double[CLOCK_CHECK_INTERVAL];
+
+    // Root moves in the order of the last completed iteration
+    private int[] rootMoves = new int[0];
+    private double[] rootScores = new double[0];
+    private int numRootMoves;
+
+    // Results of the last search
+    private int bestMove;
+    private double bestScore;
+    private int completedDepth;
+
+    /**
+     * Create a search engine
+     *
+     * @param playerMoves generates the moves considered for us
+     * @param enemyMoves  generates the moves considered for the enemy
+     */
+    public AlphaBetaSearch(MoveGenerator playerMoves, MoveGenerator enemyMoves) {
+        this.playerMoves = playerMoves;
+        this.enemyMoves = enemyMoves;
+    }
+
+    /**
+     * Set the maximum depth, in plies, of the iterative deepening.
+     * Two plies are one move for us and one move for the enemy.
+     *
+     * @param maxDepth the maximum depth
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Replace the transposition table, e.g. by a larger one.
+     * The table is kept between searches, so later turns can reuse earlier results.
+     *
+     * @param table the table to use
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Replace the evaluation function, which scores the leaves and orders the moves
+     *
+     * @param evaluator the evaluator to use
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Search for the best move of the player in the given state.
+     *
+     * @param pw       The game state
+     * @param deadline value of System.nanoTime() at which the search has to stop
+     * @return encoded best move, or NO_MOVE if we can not move
+     */
+    public int search(PlanetWars pw, long deadline) {
+        this.simpw = LookaheadBot.createSimulation(pw, simpw);
+        this.deadline = deadline;
+        this.aborted = false;
+        this.nodes = 0;
+        this.evaluations = 0;
+        this.tableHits = 0;
+        this.completedDepth = 0;
+        table.newSearch();
+        allocateBuffers();
+        int capacity = Math.max(1, playerMoves.maxMoves(simpw, PlanetWars.PLAYER));
+        if (rootMoves.length < capacity) {
+            rootMoves = new int[capacity];
+            rootScores = new double[capacity];
+        }
+        ensureSortCapacity(capacity);
+
+        // The root moves, in generation order to start with
+        numRootMoves = playerMoves.generateMoves(simpw, PlanetWars.PLAYER, rootMoves);
+        bestMove = numRootMoves > 0 ? rootMoves[0] : SimulatedPlanetWars.NO_MOVE;
+        bestScore = 0;
+        if (numRootMoves <= 1)
+            return bestMove;
+        offerFallback(pw, bestMove);
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int iterationMove = searchRoot(depth);
+            if (aborted)
+                break;
+
+            bestMove = iterationMove;
+            completedDepth = depth;
+            offerFallback(pw, bestMove);
+
+            // Try the best moves of this iteration first in the next one
+            sortDescending(rootMoves, rootScores, numRootMoves);
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Let the client send this move if the turn runs out of time before the search returns.
+     * A combined move is more than one order, so then the previous fallback is kept.
+     */
+    private static void offerFallback(PlanetWars pw, int move) {
+        if (!SimulatedPlanetWars.isCombinedMove(move))
+            pw.setFallbackOrder(SimulatedPlanetWars.moveSource(move), SimulatedPlanetWars.moveDest(move));
+    }
+
+    /**
+     * Return the score of the move returned by the last search
+     */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Return the depth of the deepest iteration the last search completed
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Return the number of nodes the last search visited
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Return the number of nodes of the last search that were answered from the transposition table
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    private int searchRoot(int depth) {
+        double alpha = Double.NEGATIVE_INFINITY;
+        int iterationMove = rootMoves[0];
+        double iterationScore = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < numRootMoves; i++) {
+            int checkpoint = simpw.checkpoint();
+            simpw.apply(PlanetWars.PLAYER, rootMoves[i]);
+            simpw.simulateGrowth();
+            double score = alphaBeta(depth - 1, 1, alpha, Double.POSITIVE_INFINITY);
+            simpw.rollback(checkpoint);
+
+            if (aborted)
+                return iterationMove;
+
+            rootScores[i] = score;
+            if (score > iterationScore) {
+                iterationScore = score;
+                iterationMove = rootMoves[i];
+            }
+            alpha = Math.max(alpha, score);
+        }
+
+        bestScore = iterationScore;
+        return iterationMove;
+    }
+
+    private double alphaBeta(int depth, int ply, double alpha, double beta) {
+        nodes++;
+        countEvaluations(1);
+        if (aborted)
+            return 0;
+
+        if (depth == 0)
+            return evaluator.evaluate(simpw);
+
+        boolean maximizing = ply % 2 == 0;
+        int player = maximizing ? PlanetWars.PLAYER : PlanetWars.ENEMY;
+        MoveGenerator generator = maximizing ? playerMoves : enemyMoves;
+
+        // Look the state up, a deep enough result ends the search here
+        long key = maximizing ? simpw.getHash() : simpw.getHash() ^ Zobrist.ENEMY_TO_MOVE;
+        int tableMove = SimulatedPlanetWars.NO_MOVE;
+        int slot = table.probe(key);
+        if (slot >= 0) {
+            if (table.getDepth(slot) >= depth) {
+                double score = table.getScore(slot);
+                byte bound = table.getBound(slot);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    tableHits++;
+                    return score;
+                }
+            }
+            tableMove = table.getMove(slot);
+        }
+
+        int[] moves = moveBuffer(ply, generator.maxMoves(simpw, player));
+        int count = generator.generateMoves(simpw, player, moves);
+        if (count == 0) {
+            moves[0] = SimulatedPlanetWars.NO_MOVE;
+            count = 1;
+        }
+        if (count > 1 && depth > 1) {
+            orderMoves(moves, scoreBuffers[ply], count, player, maximizing);
+            if (aborted)
+                return 0;
+        }
+        if (count > 1 && tableMove != SimulatedPlanetWars.NO_MOVE)
+            moveToFront(moves, count, tableMove);
+
+        double originalAlpha = alpha;
+        double originalBeta = beta;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int checkpoint = simpw.checkpoint();
+            simpw.apply(player, moves[i]);
+            simpw.simulateGrowth();
+            double score = alphaBeta(depth - 1, ply + 1, alpha, beta);
+            simpw.rollback(checkpoint);
+
+            if (aborted)
+                return 0;
+
+            if (maximizing ? score > best : score < best) {
+                best = score;
+                bestMove = moves[i];
+            }
+            if (maximizing)
+                alpha = Math.max(alpha, best);
+            else
+                beta = Math.min(beta, best);
+            if (alpha >= beta)
+                break;
+        }
+
+        byte bound = TranspositionTable.EXACT;
+        if (best <= originalAlpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        else if (best >= originalBeta)
+            bound = TranspositionTable.LOWER_BOUND;
+        table.store(key, depth, bound, best, bestMove);
+
+        return best;
+    }
+
+    /**
+     * Move the given move to the front of the list, keeping the order of the others
+     */
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count evaluations, and look at the clock every time another CLOCK_CHECK_INTERVAL of them are done
+     */
+    private void countEvaluations(int count) {
+        long before = evaluations;
+        evaluations += count;
+        if (evaluations / CLOCK_CHECK_INTERVAL != before / CLOCK_CHECK_INTERVAL && System.nanoTime() > deadline)
+            aborted = true;
+    }
+
+    /**
+     * Sort the moves so the ones that look best after one step come first.
+     * The moves are scored in chunks, with a look at the clock after each, so a node with many moves
+     * can not run far past the deadline. Sets aborted, and leaves the order alone, when time runs out.
+     */
+    private void orderMoves(int[] moves, double[] scores, int count, int player, boolean maximizing) {
+        for (int from = 0; from < count; from += CLOCK_CHECK_INTERVAL) {
+            int chunk = Math.min(CLOCK_CHECK_INTERVAL, count - from);
+            System.arraycopy(moves, from, chunkMoves, 0, chunk);
+            evaluator.evaluateMoves(simpw, player, chunkMoves, chunk, chunkScores);
+            System.arraycopy(chunkScores, 0, scores, from, chunk);
+
+            countEvaluations(chunk);
+            if (aborted)
+                return;
+        }
+
+        if (!maximizing)
+            for (int i = 0; i < count; i++)
+                scores[i] = -scores[i];
+
+        sortDescending(moves, scores, count);
+    }
+
+    /**
+     * Stable merge sort of moves by descending score, using the shared scratch arrays
+     */
+    private void sortDescending(int[] moves, double[] scores, int count) {
+        for (int width = 1; width < count; width *= 2) {
+            for (int left = 0; left < count; left += 2 * width) {
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left, j = middle, k = left;
+
+                while (i < middle && j < right) {
+                    if (scores[j] > scores[i]) {
+                        sortMoves[k] = moves[j];
+                        sortScores[k++] = scores[j++];
+                    } else {
+                        sortMoves[k] = moves[i];
+                        sortScores[k++] = scores[i++];
+                    }
+                }
+                while (i < middle) {
+                    sortMoves[k] = moves[i];
+                    sortScores[k++] = scores[i++];
+                }
+                while (j < right) {
+                    sortMoves[k] = moves[j];
+                    sortScores[k++] = scores[j++];
+                }
+            }
+            System.arraycopy(sortMoves, 0, moves, 0, count);
+            System.arraycopy(sortScores, 0, scores, 0, count);
+        }
+    }
+
+    /**
+     * Make sure there is a buffer for every ply. They start small and grow with the moves of the nodes.
+     */
+    private void allocateBuffers() {
+        ensureSortCapacity(INITIAL_CAPACITY);
+        if (moveBuffers.length >= maxDepth + 1)
+            return;
+
+        int[][] grownMoves = Arrays.copyOf(moveBuffers, maxDepth + 1);
+        double[][] grownScores = Arrays.copyOf(scoreBuffers, maxDepth + 1);
+        for (int ply = moveBuffers.length; ply <= maxDepth; ply++) {
+            grownMoves[ply] = new int[INITIAL_CAPACITY];
+            grownScores[ply] = new double[INITIAL_CAPACITY];
+        }
+        moveBuffers = grownMoves;
+        scoreBuffers = grownScores;
+    }
+
+    /**
+     * Return the move buffer of a ply, with room for at least the given number of moves and one more
+     */
+    private int[] moveBuffer(int ply, int maxMoves) {
+        int capacity = Math.max(1, maxMoves);
+        if (moveBuffers[ply].length < capacity) {
+            int size = Math.max(capacity, moveBuffers[ply].length * 2);
+            moveBuffers[ply] = new int[size];
+            scoreBuffers[ply] = new double[size];
+            ensureSortCapacity(size);
+        }
+        return moveBuffers[ply];
+    }
+
+    private void ensureSortCapacity(int capacity) {
+        if (sortMoves.length < capacity) {
+            sortMoves = new int[capacity];
+            sortScores = new double[capacity];
+        }
+    }
+}
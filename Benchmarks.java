@@ -0,0 +1,253 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameState;
+import planetWarsAPI.MapGenerator;
+import planetWarsAPI.OrderSink;
+import planetWarsAPI.PlanetWars;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks
+ * Measures the hot paths of the bots: parsing the game state, simulating, evaluating, and whole turns.
+ * <p>
+ * Every benchmark is first run for a while without measuring, so the JIT compiler has done its work, and then
+ * measured sample by sample. For every benchmark the median, 90th and 99th percentile and maximum time per
+ * operation are reported, together with the number of bytes allocated per operation.
+ * Run it before and after changing a hot path, to see whether the change helps.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Benchmarks [name filter]
+ * </pre>
+ * Example, only the turns of every bot:
+ * <pre>
+ * java Benchmarks doTurn
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class Benchmarks {
+
+    /**
+     * Map sizes the benchmarks run on
+     */
+    private static final int[] SIZES = {20, 100, 1000};
+
+    /**
+     * Time spent warming up and measuring each benchmark
+     */
+    private static final long WARMUP_NANOS = 1000000000L;
+    private static final long MEASURE_NANOS = 2000000000L;
+
+    /**
+     * Most samples kept per benchmark
+     */
+    private static final int MAX_SAMPLES = 100000;
+
+    /**
+     * Fraction of the planets owned by a player in the benchmark states
+     */
+    private static final double OWNED_FRACTION = 0.4;
+
+    /**
+     * Number of turns the timeline benchmark looks ahead
+     */
+    private static final int TIMELINE_HORIZON = 30;
+
+    /**
+     * Bots whose turns are measured
+     */
+    private static final String[] BOTS = {
+        "BullyBot", "RandomBot", "EmptyBot", "AdaptiveBot", "LookaheadBot", "AlphaBetaBot", "MctsBot"
+    };
+
+    /**
+     * Bots that use their whole time budget every turn, only measured on the smallest map
+     */
+    private static final List<String> TIMED_BOTS = Arrays.asList("AlphaBetaBot", "MctsBot");
+
+    /**
+     * Receives the orders of the bots and drops them
+     */
+    private static final OrderSink DISCARD = new OrderSink() {
+        public void issueOrder(int source, int destination) {
+        }
+
+        public void finishTurn() {
+        }
+
+        public void log(String message) {
+        }
+    };
+
+    /**
+     * Results are added here, so the JIT compiler can not remove the work being measured
+     */
+    static volatile long blackhole;
+
+    /**
+     * A piece of code to measure
+     */
+    abstract static class Benchmark {
+        final String name;
+
+        /**
+         * Number of operations a single call of run() performs
+         */
+        final int operationsPerCall;
+
+        Benchmark(String name, int operationsPerCall) {
+            this.name = name;
+            this.operationsPerCall = operationsPerCall;
+        }
+
+        abstract long run();
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+        for (int size : SIZES) {
+            final GameState state = MapGenerator.generate(size, size, OWNED_FRACTION);
+            final String text = MapGenerator.format(state);
+            final PlanetWars pw = new PlanetWars(state);
+
+            benchmarks.add(new Benchmark("parse/" + size, 1) {
+                long run() {
+                    return new PlanetWars(text).numPlanets();
+                }
+            });
+
+            final SimulatedPlanetWars simpw = LookaheadBot.createSimulation(pw);
+            benchmarks.add(new Benchmark("simulateGrowth/" + size, 100) {
+                long run() {
+                    int checkpoint = simpw.checkpoint();
+                    for (int i = 0; i < operationsPerCall; i++)
+                        simpw.simulateGrowth();
+                    simpw.rollback(checkpoint);
+                    return simpw.getHash();
+                }
+            });
+
+            final int[] moves = new int[size * size];
+            final int numMoves = MoveGenerator.ALL_ATTACKS.generateMoves(simpw, PlanetWars.PLAYER, moves);
+            benchmarks.add(new Benchmark("simulateAttack/" + size, Math.max(1, numMoves)) {
+                long run() {
+                    long hash = 0;
+                    for (int i = 0; i < numMoves; i++) {
+                        int checkpoint = simpw.checkpoint();
+                        simpw.apply(PlanetWars.PLAYER, moves[i]);
+                        hash ^= simpw.getHash();
+                        simpw.rollback(checkpoint);
+                    }
+                    return hash;
+                }
+            });
+
+            benchmarks.add(new Benchmark("evaluateState/" + size, 100) {
+                long run() {
+                    double total = 0;
+                    for (int i = 0; i < operationsPerCall; i++)
+                        total += LookaheadBot.evaluateState(simpw);
+                    return (long) total;
+                }
+            });
+
+            final WeightedEvaluator evaluator = new WeightedEvaluator(new double[]{1, 0.01, 0.5, 0.1, 0.05});
+            final double[] scores = new double[moves.length];
+            benchmarks.add(new Benchmark("evaluateMoves/" + size, Math.max(1, numMoves)) {
+                long run() {
+                    evaluator.evaluateMoves(simpw, PlanetWars.PLAYER, moves, numMoves, scores);
+                    return (long) scores[0];
+                }
+            });
+
+            final Timeline timeline = new Timeline(state, TIMELINE_HORIZON);
+            benchmarks.add(new Benchmark("timelineOrder/" + size, Math.max(1, numMoves)) {
+                long run() {
+                    long total = 0;
+                    for (int i = 0; i < numMoves; i++) {
+                        int dest = SimulatedPlanetWars.moveDest(moves[i]);
+                        timeline.addOrder(SimulatedPlanetWars.moveSource(moves[i]), dest);
+                        total += timeline.getNumShips(dest, TIMELINE_HORIZON);
+                        timeline.undoOrder();
+                    }
+                    return total;
+                }
+            });
+
+            for (final String botName : BOTS) {
+                if (TIMED_BOTS.contains(botName) && size != SIZES[0])
+                    continue;
+
+                final Bot bot = Tournament.createBot(botName);
+                benchmarks.add(new Benchmark("doTurn/" + botName + "/" + size, 1) {
+                    long run() {
+                        PlanetWars turn = new PlanetWars(new GameState(state), DISCARD);
+                        bot.doTurn(turn);
+                        return turn.numPlanets();
+                    }
+                });
+            }
+        }
+
+        System.out.println(String.format(Locale.US, "%-28s %10s %12s %12s %12s %12s %14s",
+            "Benchmark", "samples", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)", "alloc (B/op)"));
+        for (Benchmark benchmark : benchmarks)
+            if (benchmark.name.contains(filter))
+                measure(benchmark);
+    }
+
+    /**
+     * Warm up and measure a benchmark, and print its statistics
+     */
+    static void measure(Benchmark benchmark) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end)
+            blackhole += benchmark.run();
+
+        long[] samples = new long[MAX_SAMPLES];
+        int numSamples = 0;
+        long allocatedBefore = allocatedBytes();
+        end = System.nanoTime() + MEASURE_NANOS;
+        while (numSamples < MAX_SAMPLES && (numSamples == 0 || System.nanoTime() < end)) {
+            long start = System.nanoTime();
+            blackhole += benchmark.run();
+            samples[numSamples++] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Arrays.sort(samples, 0, numSamples);
+        double perOperation = 1000.0 * benchmark.operationsPerCall;
+        String bytesPerOperation = allocatedBefore < 0 ? "n/a"
+            : String.format(Locale.US, "%.1f", (double) allocated / numSamples / benchmark.operationsPerCall);
+
+        System.out.println(String.format(Locale.US, "%-28s %10d %12.3f %12.3f %12.3f %12.3f %14s",
+            benchmark.name, numSamples,
+            percentile(samples, numSamples, 0.50) / perOperation,
+            percentile(samples, numSamples, 0.90) / perOperation,
+            percentile(samples, numSamples, 0.99) / perOperation,
+            samples[numSamples - 1] / perOperation,
+            bytesPerOperation));
+    }
+
+    private static long percentile(long[] sorted, int count, double fraction) {
+        return sorted[Math.min(count - 1, (int) (fraction * count))];
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM can not tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Evaluator
+ * Scores simulated states, from the point of view of player 1: the higher, the better the state is for us.
+ * <p>
+ * Searches call the evaluator at every leaf, and to order the moves of every node, so it is the place where
+ * knowledge about the game goes, and it has to be fast. Besides scoring a single state, an evaluator scores all
+ * candidate moves of a node in one call, so the search can order them.
+ *
+ * @version 1.0
+ * @see WeightedEvaluator
+ */
+public interface Evaluator {
+
+    /**
+     * Score the current state of a simulation
+     *
+     * @param simpw The simulated state, which must be left unchanged
+     * @return score of the state, higher is better for player 1
+     */
+    double evaluate(SimulatedPlanetWars simpw);
+
+    /**
+     * Score the states reached by each of the given moves followed by a growth step.
+     * The simulation is rolled back after every move, so it is left unchanged.
+     *
+     * @param simpw  The simulated state
+     * @param player id of the player making the moves
+     * @param moves  encoded moves
+     * @param count  number of moves
+     * @param scores array to store the score of each move in, from the point of view of player 1
+     */
+    void evaluateMoves(SimulatedPlanetWars simpw, int player, int[] moves, int count, double[] scores);
+}
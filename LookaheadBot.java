@@ -1,17 +1,20 @@
 import planetWarsAPI.Bot;
 import planetWarsAPI.GameClient;
+import planetWarsAPI.GameState;
 import planetWarsAPI.Planet;
 import planetWarsAPI.PlanetWars;
+import planetWarsAPI.TurnClock;
 
-import java.util.ArrayList;
+import java.io.Closeable;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * LookaheadBot
  * Another smarter kind of bot, which implements a minimax algorithm with look-ahead of two turns.
- * It simulates the opponent using the BullyBot strategy and simulates the possible outcomes for any
+ * It simulates the opponent with the strategy an OpponentModel learned from the opponent's moves so far,
+ * BullyBot until it knows better, and simulates the possible outcomes for any
  * choice of source and destination planets in the attack. The simulated outcome states are ranked by
  * the evaluation function, which returns the most promising one.
  * <p>
@@ -25,12 +28,63 @@ import java.util.TreeSet;
  * @author Jur van den Berg
  * @version 2.1
  */
-public class LookaheadBot implements Bot {
+public class LookaheadBot implements Bot, Closeable {
 
     /**
-     * Static LookaheadBot, used only to access SimulatedPlanetWars (DON'T CHANGE)
+     * Minimum number of candidates a single worker evaluates in parallel mode
      */
-    static LookaheadBot dummyBot = new LookaheadBot();
+    private static final int CANDIDATES_PER_TASK = 32;
+
+    /**
+     * Pool of worker threads, or null to evaluate the candidates on the calling thread
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * What the opponent has been doing this game, updated at the start of every turn
+     */
+    private final OpponentModel opponentModel = new OpponentModel();
+
+    /**
+     * Simulation of the previous turn, moved on to the next turn when the client hands out changes
+     */
+    private SimulatedPlanetWars simulation;
+
+    /**
+     * Simulation of every worker thread in parallel mode, each only used by its own thread
+     */
+    private final ThreadLocal<WorkerSimulation> workerSimulations = new ThreadLocal<WorkerSimulation>() {
+        @Override
+        protected WorkerSimulation initialValue() {
+            return new WorkerSimulation();
+        }
+    };
+
+    /**
+     * Create a LookaheadBot which evaluates all candidates on the calling thread
+     */
+    public LookaheadBot() {
+        this(1);
+    }
+
+    /**
+     * Create a LookaheadBot which splits the evaluation of the candidates over several threads.
+     * <p>
+     * The chosen move is exactly the one the single threaded bot would choose.
+     *
+     * @param threads number of threads to use, 1 to evaluate everything on the calling thread
+     */
+    public LookaheadBot(int threads) {
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Stop the worker threads, if any. The bot can not play in parallel mode afterwards.
+     */
+    public void close() {
+        if (pool != null)
+            pool.shutdown();
+    }
 
     /**
      * Function that gets called every turn.
@@ -39,15 +93,27 @@ public class LookaheadBot implements Bot {
      * @param pw The game state
      */
     public void doTurn(PlanetWars pw) {
+        opponentModel.observe(pw.getState(), pw.getChanges());
+
+        if (pool != null) {
+            doParallelTurn(pw);
+            return;
+        }
 
         double score = Double.MIN_VALUE;
         Planet source = null;
         Planet dest = null;
 
 
+        // Create simulation environment - every candidate is simulated on it and rolled back afterwards
+        SimulatedPlanetWars simpw = simulation = createSimulation(pw, simulation);
+
         // We try to simulate each possible action and its outcome after two turns
         // considering each of my planets as a possible source
-        // and each enemy planet as a possible destination
+        // and each enemy planet as a possible destination.
+        // On a huge map this may take longer than a turn: then we stop, and the best attack so far is sent.
+        TurnClock clock = pw.getTurnClock();
+        candidates:
         for (Planet myPlanet : pw.getMyPlanets()) {
 
             //avoid planets with only one ship
@@ -55,25 +121,11 @@ public class LookaheadBot implements Bot {
                 continue;
 
             for (Planet notMyPlanet : pw.getNotMyPlanets()) {
+                if (clock.isExpired())
+                    break candidates;
 
-                // Create simulation environment - need to create one for each simulation
-                SimulatedPlanetWars simpw = createSimulation(pw);
-
-                // (1) simulate my turn with the current couple of source and destination
-                simpw.simulateAttack(myPlanet, notMyPlanet);
-                // (2) simulate the growth of ships that happens in each turn
-                simpw.simulateGrowth();
-
-                // (3) simulate the opponent's turn, assuming that the opponent is the BullyBot
-                //     here you can add other opponents
-                simpw.simulateBullyBotAttack();
-                // (4) simulate the growth of ships that happens in each turn
-                simpw.simulateGrowth();
-
-
-                // (5) evaluate how the current simulated state is
-                //     here you can change how a state is evaluated as good
-                double scoreMax = evaluateState(simpw);
+                // (1-5) simulate both turns and evaluate the outcome
+                double scoreMax = simulateCandidate(simpw, opponentModel, myPlanet.getID(), notMyPlanet.getID());
 
                 // (6) find the planet with the maximum evaluated score
                 //     this is the most promising future state
@@ -81,6 +133,7 @@ public class LookaheadBot implements Bot {
                     score = scoreMax;
                     source = myPlanet;
                     dest = notMyPlanet;
+                    pw.setFallbackOrder(source.getID(), dest.getID());
                 }
             }
         }
@@ -92,230 +145,238 @@ public class LookaheadBot implements Bot {
     }
 
     /**
-     * This function evaluates how promising a simulated state is.
-     * <p>
-     * You can change it to anything that makes sense, using combinations
-     * of number of planets, ships or growth rate.
+     * Simulate one candidate attack and the opponent's reply, and evaluate the outcome.
+     * The simulation is rolled back afterwards, so it can be reused for the next candidate.
      *
-     * @param pw Simulated instance of the game
-     * @return score of the final state of the simulation
+     * @param simpw    simulation of the current state
+     * @param opponent model that predicts the opponent's reply
+     * @param source   id of my planet to attack from
+     * @param dest     id of the planet to attack
+     * @return score of the simulated outcome
      */
-    public static double evaluateState(SimulatedPlanetWars pw) {
+    private static double simulateCandidate(SimulatedPlanetWars simpw, OpponentModel opponent, int source, int dest) {
+        int checkpoint = simpw.checkpoint();
+
+        // (1) simulate my turn with the current couple of source and destination
+        simpw.simulateAttack(PlanetWars.PLAYER, source, dest);
+        // (2) simulate the growth of ships that happens in each turn
+        simpw.simulateGrowth();
+
+        // (3) simulate the opponent's turn, the way it seems to play
+        //     here you can add other opponents
+        simpw.simulateOpponentAttack(opponent);
+        // (4) simulate the growth of ships that happens in each turn
+        simpw.simulateGrowth();
+
+        // (5) evaluate how the current simulated state is
+        //     here you can change how a state is evaluated as good
+        double score = evaluateState(simpw);
+
+        // Undo the simulated turns, so the next candidate starts from the current state again
+        simpw.rollback(checkpoint);
+        return score;
+    }
 
-        // CHANGE HERE
+    /**
+     * Same as doTurn, but the candidates are divided over the threads of the pool.
+     * Each worker simulates on its own SimulatedPlanetWars, kept from turn to turn like the one of doTurn,
+     * and ties are broken in favour of the
+     * candidate that comes first in the serial order, so the result is identical to doTurn.
+     *
+     * @param pw The game state
+     */
+    private void doParallelTurn(PlanetWars pw) {
+        List<Planet> myPlanets = pw.getMyPlanets();
+        List<Planet> notMyPlanets = pw.getNotMyPlanets();
 
-        double enemyShips = 1.0;
-        double myShips = 1.0;
+        int[] sources = new int[myPlanets.size() * notMyPlanets.size()];
+        int[] dests = new int[sources.length];
+        int numCandidates = 0;
 
-        for (Planet planet : pw.getEnemyPlanets()) {
-            enemyShips += planet.getNumShips();
-        }
+        for (Planet myPlanet : myPlanets) {
+            if (myPlanet.getNumShips() <= 1)
+                continue;
 
-        for (Planet planet : pw.getMyPlanets()) {
-            myShips += planet.getNumShips();
+            for (Planet notMyPlanet : notMyPlanets) {
+                sources[numCandidates] = myPlanet.getID();
+                dests[numCandidates++] = notMyPlanet.getID();
+            }
         }
 
-        return myShips / enemyShips;
-    }
+        Candidate best = pool.invoke(new CandidateTask(pw, opponentModel, workerSimulations, new Fallback(),
+            sources, dests, 0, numCandidates));
 
-    public static void main(String[] args) {
-        GameClient.run(new LookaheadBot());
+        if (best.index >= 0) {
+            pw.issueOrder(sources[best.index], dests[best.index]);
+        }
     }
 
     /**
-     * Create the simulation environment. Returns a SimulatedPlanetWars instance.
-     * Call every time you want a new simulation environment.
-     *
-     * @param pw The original PlanetWars object
-     * @return SimulatedPlanetWars instance on which to simulate your attacks.
-     * Create a new one every time you want to try alternative simulations.
+     * Best candidate of a range: its index in the serial order and its score
      */
-    public static SimulatedPlanetWars createSimulation(PlanetWars pw) {
-        return dummyBot.new SimulatedPlanetWars(pw);
+    private static class Candidate {
+        final int index;
+        final double score;
+
+        Candidate(int index, double score) {
+            this.index = index;
+            this.score = score;
+        }
     }
 
     /**
-     * Class which provide the simulation environment
-     * <p>
-     * For information about what each method does, see its equivalent PlanetWars
-     *
-     * @see PlanetWars
+     * Simulation of a worker thread, and the state of the turn it was moved on to
      */
-    public class SimulatedPlanetWars {
-
-        List<Planet> planets = new ArrayList<Planet>();
-
-        public SimulatedPlanetWars(PlanetWars pw) {
-            for (Planet planet : pw.getAllPlanets()) {
-                planets.add(planet);
+    private static class WorkerSimulation {
+        SimulatedPlanetWars simpw;
+        GameState state;
+
+        /**
+         * Return the simulation of this worker for the turn of the given state
+         */
+        SimulatedPlanetWars forTurn(PlanetWars pw) {
+            if (state != pw.getState()) {
+                simpw = createSimulation(pw, simpw);
+                state = pw.getState();
             }
+            return simpw;
         }
+    }
 
-        public void simulateGrowth() {
-            for (Planet p : planets) {
-
-                if (p.getOwner() == 0)
-                    continue;
-
-                Planet newPlanet = new Planet(p.getID(), p.getOwner(), p.getNumShips() + p.getGrowthRate(),
-                    p.getGrowthRate(), p.getX(), p.getY());
-
-                planets.set(p.getID(), newPlanet);
-            }
-        }
-
-        public void simulateAttack(int player, Planet source, Planet dest) {
-            if (source != null && dest != null) {
-                if (source.getOwner() != player) {
-                    return;
-                }
-
-                // Simulate attack
-                int remnantFleet = dest.getNumShips() - source.getNumShips() / 2;
-                int owner = dest.getOwner();
-
-                if (remnantFleet < 0)
-                    owner = player;
-
-                Planet newSource = new Planet(source.getID(), source.getOwner(), source.getNumShips() / 2,
-                    source.getGrowthRate(), source.getX(), source.getY());
-                Planet newDest = new Planet(dest.getID(), owner, Math.abs(remnantFleet),
-                    dest.getGrowthRate(), dest.getX(), dest.getY());
+    /**
+     * Best candidate of the ranges finished so far, made the fallback order of the turn
+     */
+    private static class Fallback {
+        private double score = Double.MIN_VALUE;
 
-                planets.set(source.getID(), newSource);
-                planets.set(dest.getID(), newDest);
+        synchronized void offer(PlanetWars pw, double score, int source, int dest) {
+            if (score > this.score) {
+                this.score = score;
+                pw.setFallbackOrder(source, dest);
             }
         }
+    }
 
-        public void simulateAttack(Planet source, Planet dest) {
-            simulateAttack(1, source, dest);
+    /**
+     * Evaluates a range of candidates, splitting it in halves as long as it is large enough.
+     * When the turn runs out of time, the candidates not evaluated yet are skipped.
+     */
+    private static class CandidateTask extends RecursiveTask<Candidate> {
+        private static final long serialVersionUID = 1L;
+
+        private final PlanetWars pw;
+        private final OpponentModel opponent;
+        private final ThreadLocal<WorkerSimulation> simulations;
+        private final Fallback fallback;
+        private final int[] sources;
+        private final int[] dests;
+        private final int from;
+        private final int to;
+
+        CandidateTask(PlanetWars pw, OpponentModel opponent, ThreadLocal<WorkerSimulation> simulations,
+                      Fallback fallback, int[] sources, int[] dests, int from, int to) {
+            this.pw = pw;
+            this.opponent = opponent;
+            this.simulations = simulations;
+            this.fallback = fallback;
+            this.sources = sources;
+            this.dests = dests;
+            this.from = from;
+            this.to = to;
         }
 
-
-        public void simulateBullyBotAttack() {
-            Planet source = null;
-            Planet dest = null;
-
-            double sourceScore = Double.MIN_VALUE;
-            double destScore = Double.MAX_VALUE;
-
-            for (Planet planet : planets) {
-
-                if (planet.getOwner() == PlanetWars.ENEMY) {
-                    if (planet.getNumShips() <= 1) continue;
-                    double scoreMax = (double) planet.getNumShips();
-                    if (scoreMax > sourceScore) {
-                        sourceScore = scoreMax;
-                        source = planet;
-                    }
-                }
-
-                // (2) Find the weakest enemy or neutral planet.
-                if (planet.getOwner() != PlanetWars.ENEMY) {
-                    double scoreMin = (double) (planet.getNumShips());
-                    if (scoreMin < destScore) {
-                        destScore = scoreMin;
-                        dest = planet;
-                    }
-                }
-
+        @Override
+        protected Candidate compute() {
+            if (to - from > CANDIDATES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                CandidateTask left = new CandidateTask(pw, opponent, simulations, fallback, sources, dests,
+                    from, middle);
+                CandidateTask right = new CandidateTask(pw, opponent, simulations, fallback, sources, dests,
+                    middle, to);
+                left.fork();
+                Candidate rightBest = right.compute();
+                Candidate leftBest = left.join();
+
+                // Only a strictly better score beats a candidate that comes earlier
+                return rightBest.score > leftBest.score ? rightBest : leftBest;
             }
 
-            // (3) Simulate attack
-            if (source != null && dest != null) {
-                simulateAttack(2, source, dest);
+            // This simulation is only ever used by the current thread
+            SimulatedPlanetWars simpw = simulations.get().forTurn(pw);
+            int bestIndex = -1;
+            double bestScore = Double.MIN_VALUE;
+
+            TurnClock clock = pw.getTurnClock();
+            for (int i = from; i < to && !clock.isExpired(); i++) {
+                double score = simulateCandidate(simpw, opponent, sources[i], dests[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = i;
+                }
             }
 
+            if (bestIndex >= 0)
+                fallback.offer(pw, bestScore, sources[bestIndex], dests[bestIndex]);
+            return new Candidate(bestIndex, bestScore);
         }
+    }
 
-        public int numPlanets() {
-            return planets.size();
-        }
-
-        public Planet getPlanet(int planetID) {
-            return planets.get(planetID);
-        }
-
-        public List<Planet> getAllPlanets() {
-            return planets;
-        }
-
-
-        public List<Planet> getMyPlanets() {
-            List<Planet> r = new ArrayList<Planet>();
-
-            for (Planet p : planets)
-                if (p.getOwner() == PlanetWars.PLAYER)
-                    r.add(p);
-
-            return r;
-        }
-
-        public List<Planet> getNeutralPlanets() {
-            List<Planet> r = new ArrayList<Planet>();
-
-            for (Planet p : planets)
-                if (p.getOwner() == PlanetWars.NEUTRAL)
-                    r.add(p);
-
-            return r;
-        }
-
-        public List<Planet> getEnemyPlanets() {
-            List<Planet> r = new ArrayList<Planet>();
-
-            for (Planet p : planets)
-                if (p.getOwner() >= PlanetWars.ENEMY)
-                    r.add(p);
-
-            return r;
-        }
-
-        public List<Planet> getNotMyPlanets() {
-            List<Planet> r = new ArrayList<Planet>();
-
-            for (Planet p : planets)
-                if (p.getOwner() != PlanetWars.PLAYER)
-                    r.add(p);
+    /**
+     * This function evaluates how promising a simulated state is.
+     * <p>
+     * You can change it to anything that makes sense, using combinations
+     * of number of planets, ships or growth rate.
+     *
+     * @param pw Simulated instance of the game
+     * @return score of the final state of the simulation
+     */
+    public static double evaluateState(SimulatedPlanetWars pw) {
 
-            return r;
-        }
+        // CHANGE HERE
 
-        public boolean isPlayerAlive(int player) {
-            for (Planet p : planets)
-                if (p.getOwner() == player)
-                    return true;
+        double myShips = 1.0 + pw.getNumShips(PlanetWars.PLAYER);
+        double enemyShips = 1.0 + pw.getNumShips(PlanetWars.ENEMY);
 
-            return false;
-        }
+        return myShips / enemyShips;
+    }
 
-        public int getWinner() {
-            Set<Integer> remainingPlayers = new TreeSet<Integer>();
-            for (Planet p : planets)
-                remainingPlayers.add(p.getOwner());
-
-            switch (remainingPlayers.size()) {
-                case 0:
-                    return 0;
-                case 1:
-                    return (Integer) remainingPlayers.toArray()[0];
-                default:
-                    return -1;
-            }
+    /**
+     * Run the bot, optionally with the number of threads to use as the first argument
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        LookaheadBot bot = new LookaheadBot(threads);
+        try {
+            GameClient.run(bot);
+        } finally {
+            bot.close();
         }
+    }
 
-        public int getNumShips(int player) {
-            int numShips = 0;
-
-            for (Planet p : planets)
-                if (p.getOwner() == player)
-                    numShips += p.getNumShips();
-
-            return numShips;
-        }
+    /**
+     * Create the simulation environment. Returns a SimulatedPlanetWars instance.
+     * Call every time you want a new simulation environment.
+     *
+     * @param pw The original PlanetWars object
+     * @return SimulatedPlanetWars instance on which to simulate your attacks.
+     * Use checkpoint() and rollback() on it to try alternative simulations.
+     */
+    public static SimulatedPlanetWars createSimulation(PlanetWars pw) {
+        return new SimulatedPlanetWars(pw);
+    }
 
-        public void issueOrder(Planet source, Planet dest) {
-            simulateAttack(source, dest);
-        }
+    /**
+     * Create the simulation environment of this turn, reusing the one of the previous turn if possible.
+     * When the client is in stateful mode, the previous simulation is moved on with the changes of this turn,
+     * which only touches the planets that changed.
+     *
+     * @param pw       The original PlanetWars object
+     * @param previous simulation created in the previous turn, with all operations taken back, or null
+     * @return previous, moved on to this turn, or a new SimulatedPlanetWars instance
+     */
+    public static SimulatedPlanetWars createSimulation(PlanetWars pw, SimulatedPlanetWars previous) {
+        if (previous != null && pw.getChanges() != null && previous.update(pw.getChanges()))
+            return previous;
+        return createSimulation(pw);
     }
 }
@@ -0,0 +1,74 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameClient;
+import planetWarsAPI.PlanetWars;
+
+/**
+ * MctsBot
+ * A bot which decides using Monte Carlo Tree Search (see MctsSearch).
+ * <p>
+ * Every turn it plays as many quick simulated games as its time budget allows, with both players
+ * following the BullyBot or RandomBot strategy, and picks the move that was explored the most.
+ * Whatever it learned about the move it played is carried over to the next turn when possible.
+ * <p>
+ * Things to try:
+ * - How does the number of rollout plies influence the strength?
+ * - Are BullyBot and RandomBot good models of the opponent during rollouts?
+ *
+ * @version 1.0
+ */
+public class MctsBot implements Bot {
+
+    /**
+     * Time we allow ourselves to think each turn, in milliseconds
+     */
+    private static final long TURN_BUDGET_MILLIS = 500;
+
+    private final MctsSearch search = new MctsSearch(MoveGenerator.COMBINED_ATTACKS, System.nanoTime());
+
+    /**
+     * Create a single threaded MctsBot
+     */
+    public MctsBot() {
+        this(1, false);
+    }
+
+    /**
+     * Create an MctsBot that runs its playouts on several threads
+     *
+     * @param threads      number of threads
+     * @param treeParallel true to share one tree between the threads, false to give each thread its own tree
+     */
+    public MctsBot(int threads, boolean treeParallel) {
+        if (threads > 1)
+            search.setThreads(threads, treeParallel);
+    }
+
+    /**
+     * Function that gets called every turn.
+     * This is where you add your implementation
+     *
+     * @param pw The game state
+     */
+    public void doTurn(PlanetWars pw) {
+        // Stop at our own budget, or earlier if the turn clock says so
+        long deadline = Math.min(System.nanoTime() + TURN_BUDGET_MILLIS * 1000000L,
+            pw.getTurnClock().getDeadline());
+        int move = search.search(pw, deadline);
+
+        // If you want to see how many games were simulated, uncomment the following line:
+        // pw.log("Playouts:", search.getPlayouts(), "Reused tree:", search.reusedTree());
+        // To see how well the threads scale, log the playouts per second of each thread:
+        // pw.log("Playouts/s per thread:", java.util.Arrays.toString(search.getPlayoutsPerSecond()));
+
+        SimulatedPlanetWars.issueMove(pw, move);
+    }
+
+    /**
+     * Run the bot, optionally with the number of threads and "tree" or "root" parallelization as arguments
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        boolean treeParallel = args.length > 1 && args[1].equals("tree");
+        GameClient.run(new MctsBot(threads, treeParallel));
+    }
+}
@@ -0,0 +1,614 @@
+import planetWarsAPI.GameState;
+import planetWarsAPI.PlanetWars;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * MctsSearch
+ * Monte Carlo Tree Search, using SimulatedPlanetWars as the model of the game.
+ * <p>
+ * Instead of looking at every possible sequence of moves like AlphaBetaSearch, MCTS plays many quick random
+ * games (playouts) from the current state and grows a tree towards the moves that turn out well.
+ * Each playout has four steps:
+ * 1. Selection: walk down the tree, picking children with the UCT formula, which balances moves that scored
+ * well so far against moves that were not tried often yet.
+ * 2. Expansion: add one untried move of the last node to the tree.
+ * 3. Rollout: play on for a number of plies, every ply using the BullyBot or the RandomBot strategy.
+ * 4. Backpropagation: score the final state, by the ships and the growth of both players, and add the score
+ * to all nodes on the path.
+ * <p>
+ * The tree follows the real game: a turn is a round of our move, the reply of the enemy, and then a single
+ * growth step, so the nodes where we are to move hold the states the real game can reach. Attacks travel as
+ * fleets, which the playouts are long enough to see arrive. The simulation is rolled back after every playout,
+ * so the search does not copy states.
+ * <p>
+ * The search keeps the subtree of the move it chose. If the next turn starts in a state the tree already
+ * contains, one of the replies of the enemy to that move (found by its Zobrist hash), the playouts of the
+ * previous turn are reused.
+ * <p>
+ * With more than one thread, the playouts run in parallel in one of two ways:
+ * - root parallel: every thread grows its own tree, and the visits of the moves at the roots are added up
+ * at the deadline. The threads share nothing while searching.
+ * - tree parallel: all threads grow one shared tree. Node statistics are updated with atomic operations, and
+ * a thread walking down a node adds a virtual loss to it, so other threads are steered to other branches
+ * until its playout is finished.
+ * Each thread counts its playouts, see {@link #getPlayoutsPerSecond()}, to check how well this scales.
+ *
+ * @version 2.0
+ */
+public class MctsSearch {
+
+    /**
+     * Exploration constant of UCT, for rewards between 0 and 1
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * Number of turns of growth the reward counts on top of the ships, so planets taken late in a playout,
+     * which have not paid off yet, still count
+     */
+    private static final int GROWTH_TURNS = 30;
+
+    private final MoveGenerator moveGenerator;
+    private final long seed;
+    private int rolloutPlies = 32;
+    private double bullyProbability = 0.5;
+    private boolean treeParallel;
+
+    private Worker[] workers;
+    private ExecutorService executor;
+
+    // Shared tree of the last single threaded or tree parallel search, and the node of the move it chose
+    private Node root;
+    private Node chosen;
+    private boolean reused;
+    private long elapsedNanos;
+
+    /**
+     * Create a single threaded search engine
+     *
+     * @param moveGenerator generates the moves in the tree, for both players
+     * @param seed          seed of the random generator used by the rollouts
+     */
+    public MctsSearch(MoveGenerator moveGenerator, long seed) {
+        this.moveGenerator = moveGenerator;
+        this.seed = seed;
+        this.workers = new Worker[]{new Worker(seed)};
+    }
+
+    /**
+     * Set the number of plies every rollout plays after leaving the tree, two per turn
+     */
+    public void setRolloutPlies(int rolloutPlies) {
+        this.rolloutPlies = rolloutPlies;
+    }
+
+    /**
+     * Set the chance that a rollout ply is played like BullyBot instead of like RandomBot
+     */
+    public void setBullyProbability(double bullyProbability) {
+        this.bullyProbability = bullyProbability;
+    }
+
+    /**
+     * Set the number of threads running playouts.
+     *
+     * @param threads      number of threads, 1 runs everything on the calling thread
+     * @param treeParallel true to let all threads share one tree, false to give each thread its own tree
+     */
+    public void setThreads(int threads, boolean treeParallel) {
+        this.treeParallel = treeParallel;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(seed + i);
+
+        if (executor != null)
+            executor.shutdown();
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+
+        root = null;
+        chosen = null;
+    }
+
+    /**
+     * Search for the best move of the player in the given state.
+     *
+     * @param pw       The game state
+     * @param deadline value of System.nanoTime() at which the search has to stop
+     * @return encoded best move, or NO_MOVE if we can not move
+     */
+    public int search(PlanetWars pw, final long deadline) {
+        long start = System.nanoTime();
+        for (Worker worker : workers)
+            worker.prepare(pw);
+
+        int move;
+        if (workers.length == 1 || treeParallel) {
+            root = reuseSubtree(chosen, workers[0].simpw.getHash());
+            reused = root != null;
+            if (root == null)
+                root = workers[0].newNode(null, SimulatedPlanetWars.NO_MOVE, PlanetWars.PLAYER);
+            for (Worker worker : workers)
+                worker.root = root;
+
+            runWorkers(deadline);
+
+            chosen = mostVisitedChild(root);
+            move = chosen == null ? SimulatedPlanetWars.NO_MOVE : chosen.move;
+        } else {
+            reused = false;
+            for (Worker worker : workers) {
+                worker.root = reuseSubtree(worker.chosen, worker.simpw.getHash());
+                reused |= worker.root != null;
+                if (worker.root == null)
+                    worker.root = worker.newNode(null, SimulatedPlanetWars.NO_MOVE, PlanetWars.PLAYER);
+            }
+
+            runWorkers(deadline);
+
+            move = mergeRoots();
+            for (Worker worker : workers)
+                worker.chosen = childWithMove(worker.root, move);
+        }
+
+        for (Worker worker : workers)
+            worker.simpw = null;
+        elapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    /**
+     * Let every worker run playouts until the deadline, on the calling thread if there is only one
+     */
+    private void runWorkers(final long deadline) {
+        if (workers.length == 1) {
+            workers[0].run(deadline);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final Worker worker : workers) {
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() {
+                    worker.run(deadline);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Add up the visits of every move at the roots of all workers, and return the move visited most.
+     * Each worker expands its root in its own order, so a move may be a child of some roots only.
+     */
+    private int mergeRoots() {
+        int bestMove = SimulatedPlanetWars.NO_MOVE;
+        long bestVisits = -1;
+
+        for (int w = 0; w < workers.length; w++) {
+            Node root = workers[w].root;
+            children:
+            for (int i = 0; i < root.numChildren; i++) {
+                int move = root.children[i].move;
+                // Counted already with the worker that expanded it first
+                for (int earlier = 0; earlier < w; earlier++)
+                    if (childWithMove(workers[earlier].root, move) != null)
+                        continue children;
+
+                long visits = 0;
+                for (int other = w; other < workers.length; other++) {
+                    Node child = childWithMove(workers[other].root, move);
+                    if (child != null)
+                        visits += child.visits;
+                }
+
+                if (visits > bestVisits) {
+                    bestVisits = visits;
+                    bestMove = move;
+                }
+            }
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Return the number of playouts of the last search, over all threads
+     */
+    public long getPlayouts() {
+        long playouts = 0;
+        for (Worker worker : workers)
+            playouts += worker.playouts;
+        return playouts;
+    }
+
+    /**
+     * Return the number of playouts per second each thread managed during the last search
+     */
+    public double[] getPlayoutsPerSecond() {
+        double[] rates = new double[workers.length];
+        for (int i = 0; i < workers.length; i++)
+            rates[i] = workers[i].playouts * 1e9 / Math.max(1, elapsedNanos);
+        return rates;
+    }
+
+    /**
+     * Return whether the last search started from the tree of the previous one
+     */
+    public boolean reusedTree() {
+        return reused;
+    }
+
+    /**
+     * Score a final state of a playout, from the point of view of the player: the share of the player in the
+     * ships of both, where a player's growth rate counts for the ships it grows in GROWTH_TURNS turns.
+     * <p>
+     * Override this to use another evaluation function. The result must be between 0 and 1,
+     * and with more than one thread this is called from several threads at once.
+     *
+     * @param simpw The simulated state
+     * @return 1 for a sure win, 0 for a sure loss
+     */
+    protected double reward(SimulatedPlanetWars simpw) {
+        GameState state = simpw.getState();
+        double myShips = simpw.getNumShips(PlanetWars.PLAYER)
+            + GROWTH_TURNS * state.getPlayerGrowth(PlanetWars.PLAYER);
+        double enemyShips = simpw.getNumShips(PlanetWars.ENEMY)
+            + GROWTH_TURNS * state.getPlayerGrowth(PlanetWars.ENEMY);
+
+        return (myShips + 1) / (myShips + enemyShips + 2);
+    }
+
+    private static int opponent(int player) {
+        return player == PlanetWars.PLAYER ? PlanetWars.ENEMY : PlanetWars.PLAYER;
+    }
+
+    /**
+     * Pick the child with the best UCT value, from the point of view of the player to move.
+     * Virtual losses count as visits that were lost for that player.
+     */
+    private static Node selectChild(Node node) {
+        double logVisits = Math.log(node.visits + node.virtualLoss);
+        int numChildren = node.numChildren;
+        Node[] children = node.children;
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < numChildren; i++) {
+            Node child = children[i];
+            int visits = child.visits;
+            double total = visits + child.virtualLoss;
+            if (total == 0)
+                return child;
+
+            double wins = child.getTotalReward();
+            if (node.player != PlanetWars.PLAYER)
+                wins = visits - wins;
+
+            double value = wins / total + EXPLORATION * Math.sqrt(logVisits / total);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    private static Node mostVisitedChild(Node node) {
+        Node best = null;
+
+        for (int i = 0; i < node.numChildren; i++)
+            if (best == null || node.children[i].visits > best.visits)
+                best = node.children[i];
+
+        return best;
+    }
+
+    private static Node childWithMove(Node node, int move) {
+        for (int i = 0; i < node.numChildren; i++)
+            if (node.children[i].move == move)
+                return node.children[i];
+
+        return null;
+    }
+
+    /**
+     * Find the state the game is in now among the replies to the move chosen last turn
+     *
+     * @param chosen node of the move chosen last turn, or null
+     * @param hash   Zobrist hash of the current state
+     * @return the matching node, detached from its parent, or null if there is none
+     */
+    private static Node reuseSubtree(Node chosen, long hash) {
+        if (chosen == null)
+            return null;
+
+        for (int i = 0; i < chosen.numChildren; i++) {
+            Node child = chosen.children[i];
+            if (child.hash == hash && child.player == PlanetWars.PLAYER) {
+                child.parent = null;
+                return child;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Everything a thread needs to run playouts: its own simulation, random generator and buffers
+     */
+    private class Worker {
+        final Random random;
+        SimulatedPlanetWars simpw;
+        int[] moveBuffer = new int[0];
+        int[] ownPlanets = new int[0];
+        int[] otherPlanets = new int[0];
+
+        /**
+         * Root this worker runs playouts from, shared in tree parallel mode
+         */
+        Node root;
+
+        /**
+         * Node of the move chosen last turn in this worker's own tree, root parallel mode only
+         */
+        Node chosen;
+
+        long playouts;
+
+        Worker(long seed) {
+            random = new Random(seed);
+        }
+
+        void prepare(PlanetWars pw) {
+            simpw = LookaheadBot.createSimulation(pw);
+            simpw.setFleetTravel(true);
+            playouts = 0;
+
+            int numPlanets = pw.numPlanets();
+            if (moveBuffer.length < numPlanets * numPlanets) {
+                moveBuffer = new int[Math.max(1, numPlanets * numPlanets)];
+                ownPlanets = new int[numPlanets];
+                otherPlanets = new int[numPlanets];
+            }
+        }
+
+        void run(long deadline) {
+            do {
+                playout();
+                playouts++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * Run a single playout from the root and update the tree with its result
+         */
+        void playout() {
+            int checkpoint = simpw.checkpoint();
+
+            // (1) Selection
+            Node node = root;
+            node.addVirtualLoss(1);
+            while (node.numUntried == 0 && node.numChildren > 0) {
+                node = selectChild(node);
+                node.addVirtualLoss(1);
+                applyPly(node.parent.player, node.move);
+            }
+
+            // (2) Expansion
+            int move = node.takeUntriedMove(random);
+            if (move != Node.NONE) {
+                applyPly(node.player, move);
+                node = node.addChild(newNode(node, move, opponent(node.player)));
+                node.addVirtualLoss(1);
+            }
+
+            // (3) Rollout
+            int player = node.player;
+            for (int ply = 0; ply < rolloutPlies; ply++) {
+                applyPly(player, rolloutMove(player));
+                player = opponent(player);
+            }
+
+            // (4) Backpropagation
+            double reward = reward(simpw);
+            for (; node != null; node = node.parent) {
+                node.addVirtualLoss(-1);
+                node.addVisit(reward);
+            }
+
+            simpw.rollback(checkpoint);
+        }
+
+        /**
+         * Apply the move of a player. The enemy moves last in a round, so its move ends the turn.
+         */
+        void applyPly(int player, int move) {
+            simpw.apply(player, move);
+            if (player == PlanetWars.ENEMY)
+                simpw.simulateGrowth();
+        }
+
+        /**
+         * Create a node for the current simulated state, in which the given player is to move
+         */
+        Node newNode(Node parent, int move, int player) {
+            int count = moveGenerator.generateMoves(simpw, player, moveBuffer);
+            if (count == 0) {
+                moveBuffer[0] = SimulatedPlanetWars.NO_MOVE;
+                count = 1;
+            }
+            return new Node(parent, move, player, simpw.getHash(), moveBuffer, count);
+        }
+
+        /**
+         * Move of a rollout ply, played like BullyBot or like RandomBot
+         */
+        int rolloutMove(int player) {
+            if (random.nextDouble() < bullyProbability) {
+                if (MoveGenerator.BULLY_BOT.generateMoves(simpw, player, moveBuffer) == 0)
+                    return SimulatedPlanetWars.NO_MOVE;
+                return moveBuffer[0];
+            }
+
+            GameState state = simpw.getState();
+            int numOwn = 0;
+            int numOther = 0;
+            for (int i = 0; i < state.numPlanets(); i++) {
+                if (state.getOwner(i) == player)
+                    ownPlanets[numOwn++] = i;
+                else
+                    otherPlanets[numOther++] = i;
+            }
+
+            if (numOwn == 0 || numOther == 0)
+                return SimulatedPlanetWars.NO_MOVE;
+
+            return SimulatedPlanetWars.move(ownPlanets[random.nextInt(numOwn)],
+                otherPlanets[random.nextInt(numOther)]);
+        }
+    }
+
+    /**
+     * A state in the search tree.
+     * <p>
+     * The statistics are updated without locks, so threads sharing a tree never wait for each other while
+     * walking it. Only taking an untried move and adding the new child lock the node, which happens once
+     * per playout.
+     */
+    static class Node {
+        /**
+         * Returned by takeUntriedMove when every move has been tried
+         */
+        static final int NONE = Integer.MIN_VALUE;
+
+        private static final AtomicIntegerFieldUpdater<Node> VISITS =
+            AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicIntegerFieldUpdater<Node> VIRTUAL_LOSS =
+            AtomicIntegerFieldUpdater.newUpdater(Node.class, "virtualLoss");
+        private static final AtomicLongFieldUpdater<Node> TOTAL_REWARD =
+            AtomicLongFieldUpdater.newUpdater(Node.class, "totalRewardBits");
+
+        volatile Node parent;
+
+        /**
+         * Move that led from the parent to this node
+         */
+        final int move;
+
+        /**
+         * Player to move in this node
+         */
+        final int player;
+
+        /**
+         * Zobrist hash of the state of this node
+         */
+        final long hash;
+
+        volatile Node[] children = new Node[2];
+        volatile int numChildren;
+        private final int[] untried;
+        volatile int numUntried;
+
+        volatile int visits;
+
+        /**
+         * Number of playouts currently passing through this node
+         */
+        volatile int virtualLoss;
+
+        /**
+         * Sum of the rewards of all playouts through this node, from the point of view of the player,
+         * stored as the bits of a double
+         */
+        private volatile long totalRewardBits;
+
+        Node(Node parent, int move, int player, long hash, int[] moves, int numMoves) {
+            this.parent = parent;
+            this.move = move;
+            this.player = player;
+            this.hash = hash;
+            this.untried = new int[numMoves];
+            System.arraycopy(moves, 0, untried, 0, numMoves);
+            this.numUntried = numMoves;
+        }
+
+        double getTotalReward() {
+            return Double.longBitsToDouble(totalRewardBits);
+        }
+
+        void addVirtualLoss(int delta) {
+            VIRTUAL_LOSS.addAndGet(this, delta);
+        }
+
+        void addVisit(double reward) {
+            VISITS.incrementAndGet(this);
+
+            long current;
+            long updated;
+            do {
+                current = totalRewardBits;
+                updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + reward);
+            } while (!TOTAL_REWARD.compareAndSet(this, current, updated));
+        }
+
+        /**
+         * Remove a random untried move
+         *
+         * @return the move, or NONE if every move has been tried
+         */
+        synchronized int takeUntriedMove(Random random) {
+            if (numUntried == 0)
+                return NONE;
+
+            int index = random.nextInt(numUntried);
+            int move = untried[index];
+            untried[index] = untried[numUntried - 1];
+            numUntried--;
+            return move;
+        }
+
+        synchronized Node addChild(Node child) {
+            Node[] current = children;
+            int count = numChildren;
+            if (count == current.length) {
+                Node[] grown = new Node[current.length * 2];
+                System.arraycopy(current, 0, grown, 0, count);
+                children = grown;
+                current = grown;
+            }
+
+            // Publish the child before the count, so readers never see an empty slot
+            current[count] = child;
+            numChildren = count + 1;
+            return child;
+        }
+    }
+}
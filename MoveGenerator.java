@@ -0,0 +1,138 @@
+import planetWarsAPI.GameState;
+
+/**
+ * MoveGenerator
+ * Produces the moves a player can choose from in a simulated state.
+ * <p>
+ * Search algorithms ask a MoveGenerator for the candidates of every player at every ply,
+ * so plugging in another generator changes what the search considers (e.g. all attacks for
+ * yourself, and only the BullyBot move for an opponent that you assume to be BullyBot).
+ * <p>
+ * Moves are encoded with {@link SimulatedPlanetWars#move(int, int)}.
+ *
+ * @version 1.0
+ */
+public interface MoveGenerator {
+
+    /**
+     * Write the moves of a player into the given array.
+     * <p>
+     * The array has room for at least {@link #maxMoves(SimulatedPlanetWars, int)} moves.
+     * The simulation must be left unchanged.
+     *
+     * @param simpw  The simulated game state
+     * @param player id of the player to move
+     * @param moves  array to store the moves in
+     * @return the number of moves written, 0 if the player can not do anything
+     */
+    int generateMoves(SimulatedPlanetWars simpw, int player, int[] moves);
+
+    /**
+     * Return an upper bound of the number of moves generateMoves writes in the current state,
+     * so callers can size their arrays to it instead of to numPlanets * numPlanets.
+     *
+     * @param simpw  The simulated game state
+     * @param player id of the player to move
+     * @return at least the number of moves generateMoves would return
+     */
+    int maxMoves(SimulatedPlanetWars simpw, int player);
+
+    /**
+     * Every attack from a planet of the player with more than one ship,
+     * to every planet the player does not own. This is what LookaheadBot tries.
+     */
+    MoveGenerator ALL_ATTACKS = new MoveGenerator() {
+        public int generateMoves(SimulatedPlanetWars simpw, int player, int[] moves) {
+            GameState state = simpw.getState();
+            int count = 0;
+
+            for (int source = 0; source < state.numPlanets(); source++) {
+                if (state.getOwner(source) != player || state.getNumShips(source) <= 1)
+                    continue;
+
+                for (int dest = 0; dest < state.numPlanets(); dest++)
+                    if (state.getOwner(dest) != player)
+                        moves[count++] = SimulatedPlanetWars.move(source, dest);
+            }
+
+            return count;
+        }
+
+        public int maxMoves(SimulatedPlanetWars simpw, int player) {
+            GameState state = simpw.getState();
+            int sources = 0;
+            for (int i = state.nextPlanet(player, 0); i >= 0; i = state.nextPlanet(player, i + 1))
+                if (state.getNumShips(i) > 1)
+                    sources++;
+            return sources * (state.numPlanets() - state.countPlanets(player));
+        }
+    };
+
+    /**
+     * Every attack of ALL_ATTACKS, and for every planet the player does not own a combined attack
+     * by all planets of the player at once. Only useful when the player has more than one planet to attack from.
+     *
+     * @see SimulatedPlanetWars#simulateCombinedAttack(int, int)
+     */
+    MoveGenerator COMBINED_ATTACKS = new MoveGenerator() {
+        public int generateMoves(SimulatedPlanetWars simpw, int player, int[] moves) {
+            GameState state = simpw.getState();
+            int count = ALL_ATTACKS.generateMoves(simpw, player, moves);
+
+            int sources = 0;
+            for (int i = 0; i < state.numPlanets(); i++)
+                if (state.getOwner(i) == player && state.getNumShips(i) > 1)
+                    sources++;
+            if (sources < 2)
+                return count;
+
+            for (int dest = 0; dest < state.numPlanets(); dest++)
+                if (state.getOwner(dest) != player)
+                    moves[count++] = SimulatedPlanetWars.combinedMove(dest);
+
+            return count;
+        }
+
+        public int maxMoves(SimulatedPlanetWars simpw, int player) {
+            GameState state = simpw.getState();
+            return ALL_ATTACKS.maxMoves(simpw, player) + state.numPlanets() - state.countPlanets(player);
+        }
+    };
+
+    /**
+     * The single move BullyBot would make: its strongest planet attacks the weakest planet it does not own.
+     */
+    MoveGenerator BULLY_BOT = new MoveGenerator() {
+        public int generateMoves(SimulatedPlanetWars simpw, int player, int[] moves) {
+            GameState state = simpw.getState();
+            int source = -1;
+            int dest = -1;
+            int strongest = 1;
+            int weakest = Integer.MAX_VALUE;
+
+            for (int i = 0; i < state.numPlanets(); i++) {
+                int numShips = state.getNumShips(i);
+
+                if (state.getOwner(i) == player) {
+                    if (numShips > strongest) {
+                        strongest = numShips;
+                        source = i;
+                    }
+                } else if (numShips < weakest) {
+                    weakest = numShips;
+                    dest = i;
+                }
+            }
+
+            if (source < 0 || dest < 0)
+                return 0;
+
+            moves[0] = SimulatedPlanetWars.move(source, dest);
+            return 1;
+        }
+
+        public int maxMoves(SimulatedPlanetWars simpw, int player) {
+            return 1;
+        }
+    };
+}
@@ -0,0 +1,305 @@
+import planetWarsAPI.ChangeSet;
+import planetWarsAPI.DistanceMatrix;
+import planetWarsAPI.GameState;
+import planetWarsAPI.PlanetWars;
+
+import java.util.Arrays;
+
+/**
+ * OpponentModel
+ * Learns during a game how the enemy picks its attacks, so simulations can predict its reply instead of assuming
+ * it is BullyBot.
+ * <p>
+ * The model knows a few policies an opponent may follow (see {@link Policy}). Every turn it looks at what the enemy
+ * did since the previous turn: fleets that were just launched show their source and destination. A fleet that
+ * arrives one turn after launch is never seen, but its source is still found, because that planet lost half its
+ * ships. For every policy the model then checks whether it would have picked that source and that destination in
+ * the previous state. The hits are kept as counts that decay every turn, so the model follows an opponent that
+ * changes its play, and the policy with the most hits is the prediction. Until a policy beats BullyBot, BullyBot is
+ * predicted.
+ * <p>
+ * The statistics take a fixed amount of memory and an update only looks at the previous and the current state,
+ * so it costs the same in the first turn and after hundreds of turns, linear in the number of planets and fleets.
+ * Use one model per game:
+ * <pre>{@code
+ * opponentModel.observe(pw.getState(), pw.getChanges()); // once, at the start of every turn
+ * simpw.simulateOpponentAttack(opponentModel);          // in place of simulateBullyBotAttack
+ * }</pre>
+ * The model is also a MoveGenerator that generates the predicted move, for the enemy side of a search.
+ * Predicting does not change the model, so it can be done from several threads at once.
+ *
+ * @version 1.0
+ */
+public class OpponentModel implements MoveGenerator {
+
+    /**
+     * Ways an opponent may pick its attack. All attacks go from the planet with the most ships.
+     */
+    public enum Policy {
+        /**
+         * To the planet with the fewest ships it does not own, like BullyBot
+         */
+        BULLY_BOT,
+        /**
+         * To the nearest planet it does not own
+         */
+        NEAREST,
+        /**
+         * To the planet it does not own with the most growth for the ships and travel time it costs
+         */
+        BEST_VALUE,
+        /**
+         * No attack at all
+         */
+        NO_ATTACK
+    }
+
+    private static final Policy[] POLICIES = Policy.values();
+
+    /**
+     * Factor by which older observations count less every turn
+     */
+    private static final double DECAY = 0.9;
+
+    /**
+     * Decayed number of turns each policy picked the same source, and the same destination, as the enemy
+     */
+    private final double[] sourceHits = new double[POLICIES.length];
+    private final double[] destHits = new double[POLICIES.length];
+    private double observations;
+
+    private Policy prediction = Policy.BULLY_BOT;
+
+    /**
+     * State of the previous turn
+     */
+    private GameState previous;
+
+    /**
+     * Per planet, whether the enemy attacked from it and whether it attacked it, since the previous turn
+     */
+    private boolean[] attackedFrom = new boolean[0];
+    private boolean[] attacked = new boolean[0];
+
+    /**
+     * Learn from what the enemy did since the previous call. Call it once every turn, with the new state.
+     *
+     * @param state the state at the start of this turn
+     */
+    public void observe(GameState state) {
+        observe(state, null);
+    }
+
+    /**
+     * Same as {@link #observe(GameState)}, with the changes a client in stateful mode hands out. They tell whether
+     * this is the same game and which fleets are new. Finding that out still takes a pass over the planets and
+     * fleets, but the client does it once per turn for everything that uses the changes.
+     *
+     * @param state   the state at the start of this turn
+     * @param changes what changed since the previous turn, or null
+     */
+    public void observe(GameState state, ChangeSet changes) {
+        if (changes != null && changes.getPrevious() == previous && changes.getCurrent() == state) {
+            if (!changes.isNewGame())
+                learn(previous, state, changes);
+        } else if (previous != null && sameMap(previous, state)) {
+            learn(previous, state, null);
+        }
+        previous = state;
+    }
+
+    private void learn(GameState before, GameState after, ChangeSet changes) {
+        int numPlanets = after.numPlanets();
+        if (attacked.length != numPlanets) {
+            attackedFrom = new boolean[numPlanets];
+            attacked = new boolean[numPlanets];
+        }
+        Arrays.fill(attackedFrom, false);
+        Arrays.fill(attacked, false);
+
+        // Fleets launched last turn have travelled one step
+        boolean launched = false;
+        boolean destinationKnown = false;
+        int numFleets = changes != null ? changes.numLaunched() : after.numFleets();
+        for (int k = 0; k < numFleets; k++) {
+            int i = changes != null ? changes.getLaunchedFleet(k) : k;
+            if (after.getFleetOwner(i) != PlanetWars.ENEMY
+                || after.getFleetTotalTrip(i) - after.getFleetTurnsRemaining(i) != 1)
+                continue;
+            attackedFrom[after.getFleetSource(i)] = true;
+            attacked[after.getFleetDest(i)] = true;
+            launched = true;
+            destinationKnown = true;
+        }
+
+        // A fleet that already arrived is not seen, but its source kept half its ships and grew
+        if (!launched) {
+            for (int i = 0; i < numPlanets; i++) {
+                int ships = before.getNumShips(i);
+                if (before.getOwner(i) == PlanetWars.ENEMY && after.getOwner(i) == PlanetWars.ENEMY
+                    && ships > 1 && after.getNumShips(i) == ships - ships / 2 + before.getGrowthRate(i)) {
+                    attackedFrom[i] = true;
+                    launched = true;
+                }
+            }
+        }
+
+        // Without a planet to attack from, every policy does nothing, which tells nothing
+        int source = strongestPlanet(before, PlanetWars.ENEMY);
+        if (source < 0 && !launched)
+            return;
+
+        observations = observations * DECAY + 1;
+        for (Policy policy : POLICIES) {
+            int p = policy.ordinal();
+            sourceHits[p] *= DECAY;
+            destHits[p] *= DECAY;
+
+            int move = move(policy, before, PlanetWars.ENEMY);
+            if (move == SimulatedPlanetWars.NO_MOVE) {
+                if (!launched) {
+                    sourceHits[p]++;
+                    destHits[p]++;
+                }
+                continue;
+            }
+
+            if (attackedFrom[SimulatedPlanetWars.moveSource(move)])
+                sourceHits[p]++;
+            if (destinationKnown && attacked[SimulatedPlanetWars.moveDest(move)])
+                destHits[p]++;
+        }
+
+        // Another policy has to do strictly better than the BullyBot assumption
+        Policy best = Policy.BULLY_BOT;
+        for (Policy policy : POLICIES)
+            if (score(policy) > score(best))
+                best = policy;
+        prediction = best;
+    }
+
+    /**
+     * Return the policy the enemy seems to follow
+     */
+    public Policy getPrediction() {
+        return prediction;
+    }
+
+    /**
+     * Return how well a policy explains the moves of the enemy so far
+     *
+     * @param policy the policy
+     * @return between 0, never the same source or destination, and 2, always the same source and destination
+     */
+    public double score(Policy policy) {
+        if (observations == 0)
+            return 0;
+        return (sourceHits[policy.ordinal()] + destHits[policy.ordinal()]) / observations;
+    }
+
+    /**
+     * Return the move the enemy is expected to make in a simulated state
+     *
+     * @param simpw  the simulated state
+     * @param player id of the player whose move to predict, normally PlanetWars.ENEMY
+     * @return encoded move, or NO_MOVE
+     */
+    public int predictMove(SimulatedPlanetWars simpw, int player) {
+        return move(prediction, simpw.getState(), player);
+    }
+
+    /**
+     * The predicted move as the only move of the player
+     */
+    public int generateMoves(SimulatedPlanetWars simpw, int player, int[] moves) {
+        int move = predictMove(simpw, player);
+        if (move == SimulatedPlanetWars.NO_MOVE)
+            return 0;
+        moves[0] = move;
+        return 1;
+    }
+
+    public int maxMoves(SimulatedPlanetWars simpw, int player) {
+        return 1;
+    }
+
+    /**
+     * Return the move a policy makes for a player
+     */
+    static int move(Policy policy, GameState state, int player) {
+        if (policy == Policy.NO_ATTACK)
+            return SimulatedPlanetWars.NO_MOVE;
+
+        int source = strongestPlanet(state, player);
+        if (source < 0)
+            return SimulatedPlanetWars.NO_MOVE;
+
+        int dest = -1;
+        switch (policy) {
+            case BULLY_BOT:
+                int weakest = Integer.MAX_VALUE;
+                for (int i = state.nextPlanetNotOwnedBy(player, 0); i >= 0;
+                     i = state.nextPlanetNotOwnedBy(player, i + 1)) {
+                    if (state.getNumShips(i) < weakest) {
+                        weakest = state.getNumShips(i);
+                        dest = i;
+                    }
+                }
+                break;
+
+            case NEAREST:
+                DistanceMatrix distances = state.getDistances();
+                for (int k = 0; k < distances.numNeighbours() && dest < 0; k++) {
+                    int planet = distances.getNeighbour(source, k);
+                    if (state.getOwner(planet) != player)
+                        dest = planet;
+                }
+                break;
+
+            case BEST_VALUE:
+                double bestValue = Double.NEGATIVE_INFINITY;
+                for (int i = state.nextPlanetNotOwnedBy(player, 0); i >= 0;
+                     i = state.nextPlanetNotOwnedBy(player, i + 1)) {
+                    int turns = Math.max(1, state.getDistances().getTurns(source, i));
+                    double value = (double) state.getGrowthRate(i) / ((1 + state.getNumShips(i)) * turns);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        dest = i;
+                    }
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        return dest < 0 ? SimulatedPlanetWars.NO_MOVE : SimulatedPlanetWars.move(source, dest);
+    }
+
+    /**
+     * Return the planet of a player with the most ships, if it has more than one, or -1
+     */
+    private static int strongestPlanet(GameState state, int player) {
+        int source = -1;
+        int strongest = 1;
+        for (int i = state.nextPlanet(player, 0); i >= 0; i = state.nextPlanet(player, i + 1)) {
+            if (state.getNumShips(i) > strongest) {
+                strongest = state.getNumShips(i);
+                source = i;
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Return whether two states are turns of the same game, so the planets of one are the planets of the other
+     */
+    private static boolean sameMap(GameState a, GameState b) {
+        if (a.numPlanets() != b.numPlanets())
+            return false;
+        for (int i = 0; i < a.numPlanets(); i++)
+            if (a.getX(i) != b.getX(i) || a.getY(i) != b.getY(i) || a.getGrowthRate(i) != b.getGrowthRate(i))
+                return false;
+        return true;
+    }
+}
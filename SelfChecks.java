@@ -0,0 +1,333 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.ChangeSet;
+import planetWarsAPI.GameState;
+import planetWarsAPI.MapGenerator;
+import planetWarsAPI.MatchEngine;
+import planetWarsAPI.PlanetWars;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SelfChecks
+ * Checks that the shortcuts the bots take give the results they are meant to, on played games and made-up states.
+ * <p>
+ * Every check compares a fast path with the slow, obvious way of getting the same answer, or measures that a
+ * feature actually does something in real games. A check prints what it measured and whether that is good
+ * enough. The program ends with exit status 1 when a check fails, so it can run before every commit.
+ * <p>
+ * Usage:
+ * <pre>
+ * java SelfChecks [name filter]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class SelfChecks {
+
+    /**
+     * Number of planets of the maps the games are played on
+     */
+    private static final int GAME_PLANETS = 20;
+
+    /**
+     * Turn budget of the games, short so the checks finish quickly
+     */
+    private static final long GAME_TURN_BUDGET_MILLIS = 50;
+
+    /**
+     * Something to check
+     */
+    abstract static class Check {
+        final String name;
+
+        Check(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Run the check
+         *
+         * @return what was measured
+         * @throws IllegalStateException when the check fails, with what went wrong
+         */
+        abstract String run();
+    }
+
+    /**
+     * Something to look at in every turn of a game
+     */
+    abstract static class Watcher {
+        /**
+         * Look at a turn, before the bot moves
+         *
+         * @param pw the state of the turn, from the view of the watched bot
+         */
+        abstract void watch(PlanetWars pw);
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        List<Check> checks = new ArrayList<Check>();
+
+        checks.add(new Check("mctsTreeReuse") {
+            String run() {
+                return checkTreeReuse(3);
+            }
+        });
+
+        checks.add(new Check("timeline") {
+            String run() {
+                return checkTimeline(6);
+            }
+        });
+
+        checks.add(new Check("opponentModel") {
+            String run() {
+                return checkOpponentModel(new BullyBot(), OpponentModel.Policy.BULLY_BOT, 6)
+                    + ", " + checkOpponentModel(new EmptyBot(), OpponentModel.Policy.NO_ATTACK, 6);
+            }
+        });
+
+        checks.add(new Check("simulationUpdate") {
+            String run() {
+                return checkSimulationUpdate(12);
+            }
+        });
+
+        int failed = 0;
+        for (Check check : checks) {
+            if (!check.name.contains(filter))
+                continue;
+            try {
+                System.out.println("PASS " + check.name + ": " + check.run());
+            } catch (IllegalStateException e) {
+                System.out.println("FAIL " + check.name + ": " + e.getMessage());
+                failed++;
+            }
+        }
+
+        if (failed > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Play games of MCTS against BullyBot and count the turns that start from the tree of the previous turn.
+     * BullyBot's reply is among the moves of the tree, so most turns should find their state in it.
+     */
+    static String checkTreeReuse(int games) {
+        MatchEngine engine = new MatchEngine();
+        engine.setTurnBudget(GAME_TURN_BUDGET_MILLIS);
+        final int[] turns = new int[2];
+
+        for (int game = 0; game < games; game++) {
+            final MctsSearch search = new MctsSearch(MoveGenerator.COMBINED_ATTACKS, game);
+            Bot bot = new Bot() {
+                private boolean firstTurn = true;
+
+                public void doTurn(PlanetWars pw) {
+                    int move = search.search(pw, pw.getTurnClock().getDeadline());
+                    // The first turn has no tree to reuse
+                    if (!firstTurn) {
+                        turns[0]++;
+                        if (search.reusedTree())
+                            turns[1]++;
+                    }
+                    firstTurn = false;
+                    SimulatedPlanetWars.issueMove(pw, move);
+                }
+            };
+            engine.play(bot, new BullyBot(), MapGenerator.generate(GAME_PLANETS, game));
+        }
+
+        String result = "reused the tree in " + turns[1] + " of " + turns[0] + " turns";
+        if (turns[1] * 2 < turns[0])
+            throw new IllegalStateException(result + ", expected at least half");
+        return result;
+    }
+
+    /**
+     * Play a game, and let a watcher look at every turn of the first bot before it moves.
+     * The engine scores a bot that throws as the loser, so a failure of the watcher is passed on after the game.
+     */
+    static void playWatched(final Bot bot, Bot opponent, GameState map, final Watcher watcher) {
+        final IllegalStateException[] failure = new IllegalStateException[1];
+        MatchEngine engine = new MatchEngine();
+        engine.setTurnBudget(GAME_TURN_BUDGET_MILLIS);
+        engine.play(new Bot() {
+            public void doTurn(PlanetWars pw) {
+                try {
+                    watcher.watch(pw);
+                } catch (IllegalStateException e) {
+                    failure[0] = e;
+                    throw e;
+                }
+                bot.doTurn(pw);
+            }
+        }, opponent, map);
+
+        if (failure[0] != null)
+            throw failure[0];
+    }
+
+    /**
+     * Play games against an opponent, and check that the opponent model predicts its policy in every turn after
+     * the first. Every other game the model gets the changes between the turns, as in stateful mode.
+     */
+    static String checkOpponentModel(Bot opponent, final OpponentModel.Policy policy, int games) {
+        final int[] turns = new int[2];
+
+        for (int game = 0; game < games; game++) {
+            final boolean withChanges = game % 2 == 1;
+            final OpponentModel model = new OpponentModel();
+            playWatched(new BullyBot(), opponent, MapGenerator.generate(GAME_PLANETS, game), new Watcher() {
+                private GameState previous;
+                private int turn;
+
+                void watch(PlanetWars pw) {
+                    GameState state = pw.getState();
+                    model.observe(state, withChanges ? ChangeSet.between(previous, state) : null);
+                    previous = state;
+
+                    // The first turn has nothing to learn from
+                    if (++turn == 1)
+                        return;
+                    turns[0]++;
+                    if (model.getPrediction() == policy)
+                        turns[1]++;
+                }
+            });
+        }
+
+        String result = opponent.getClass().getName() + " predicted as " + policy + " in " + turns[1] + " of "
+            + turns[0] + " turns";
+        if (turns[1] < turns[0])
+            throw new IllegalStateException(result);
+        return result;
+    }
+
+    /**
+     * Play games, move a simulation on from turn to turn with the changes, as the bots do in stateful mode, and
+     * compare it in every turn with a simulation built from scratch. The simulation is used for a growth step and
+     * rolled back in between, as a search would.
+     */
+    static String checkSimulationUpdate(int games) {
+        final int[] turns = new int[2];
+
+        for (int game = 0; game < games; game++) {
+            Bot bot = game % 2 == 0 ? new BullyBot() : new LookaheadBot();
+            playWatched(bot, new BullyBot(), MapGenerator.generate(10 + game, game), new Watcher() {
+                private GameState previous;
+                private SimulatedPlanetWars simpw;
+
+                void watch(PlanetWars pw) {
+                    ChangeSet changes = ChangeSet.between(previous, pw.getState());
+                    previous = pw.getState();
+                    turns[0]++;
+                    if (simpw != null && simpw.update(changes))
+                        turns[1]++;
+                    else
+                        simpw = new SimulatedPlanetWars(pw);
+
+                    compareSimulation(simpw, new SimulatedPlanetWars(pw), turns[0]);
+
+                    int checkpoint = simpw.checkpoint();
+                    simpw.simulateBullyBotAttack();
+                    simpw.simulateGrowth();
+                    simpw.rollback(checkpoint);
+                }
+            });
+        }
+
+        String result = "updated the simulation in " + turns[1] + " of " + turns[0] + " turns";
+        if (turns[1] + games < turns[0])
+            throw new IllegalStateException(result + ", expected all but the first turn of every game");
+        return result;
+    }
+
+    /**
+     * Fail when two simulations differ in hash, planets, or ships
+     */
+    private static void compareSimulation(SimulatedPlanetWars updated, SimulatedPlanetWars fresh, int watched) {
+        if (updated.getHash() != fresh.getHash())
+            throw new IllegalStateException("turn " + watched + ": hash differs");
+
+        GameState a = updated.getState();
+        GameState b = fresh.getState();
+        for (int planet = 0; planet < a.numPlanets(); planet++)
+            if (a.getOwner(planet) != b.getOwner(planet) || a.getNumShips(planet) != b.getNumShips(planet))
+                throw new IllegalStateException("turn " + watched + ", planet " + planet + ": " + a.getNumShips(planet)
+                    + " ships of player " + a.getOwner(planet) + " after the update, " + b.getNumShips(planet)
+                    + " ships of player " + b.getOwner(planet) + " from scratch");
+
+        for (int player = PlanetWars.NEUTRAL; player <= PlanetWars.ENEMY; player++)
+            if (updated.getNumShips(player) != fresh.getNumShips(player)
+                || updated.getShipsInFlight(player) != fresh.getShipsInFlight(player))
+                throw new IllegalStateException("turn " + watched + ": ships of player " + player + " differ");
+    }
+
+    /**
+     * Compare the timeline of every turn of some games with a simulation with fleet travel that plays out the
+     * same turns one by one, first with a few random orders of both players tried, then with them taken back.
+     */
+    static String checkTimeline(int games) {
+        final int horizon = 30;
+        final Random random = new Random(1);
+        final int[] counts = new int[2];
+
+        for (int game = 0; game < games; game++) {
+            playWatched(new BullyBot(), new BullyBot(), MapGenerator.generate(GAME_PLANETS, game), new Watcher() {
+                void watch(PlanetWars pw) {
+                    GameState state = pw.getState();
+                    Timeline timeline = new Timeline(state, horizon);
+                    SimulatedPlanetWars simpw = new SimulatedPlanetWars(pw);
+                    simpw.setFleetTravel(true);
+                    int checkpoint = simpw.checkpoint();
+
+                    int orders = random.nextInt(4);
+                    for (int k = 0; k < orders; k++) {
+                        int source = random.nextInt(state.numPlanets());
+                        int dest = random.nextInt(state.numPlanets());
+                        if (state.getOwner(source) == PlanetWars.NEUTRAL)
+                            continue;
+                        timeline.addOrder(source, dest);
+                        simpw.simulateAttack(state.getOwner(source), source, dest);
+                        counts[1]++;
+                    }
+                    compareTimeline(timeline, simpw, counts[0]);
+
+                    timeline.clearOrders();
+                    simpw.rollback(checkpoint);
+                    compareTimeline(timeline, simpw, counts[0]);
+                    counts[0]++;
+                }
+            });
+        }
+
+        return "matched " + counts[0] + " turns up to " + horizon + " turns ahead, with " + counts[1] + " orders";
+    }
+
+    /**
+     * Play out the turns of a timeline on a simulation, and fail at the first planet they disagree on
+     */
+    private static void compareTimeline(Timeline timeline, SimulatedPlanetWars simpw, int watched) {
+        int checkpoint = simpw.checkpoint();
+        GameState simulated = simpw.getState();
+
+        for (int turn = 0; turn <= timeline.getHorizon(); turn++) {
+            if (turn > 0)
+                simpw.simulateGrowth();
+            for (int planet = 0; planet < simulated.numPlanets(); planet++) {
+                if (timeline.getOwner(planet, turn) != simulated.getOwner(planet)
+                    || timeline.getNumShips(planet, turn) != simulated.getNumShips(planet))
+                    throw new IllegalStateException("turn " + watched + ", planet " + planet + " at " + turn
+                        + " turns ahead: timeline says " + timeline.getNumShips(planet, turn) + " ships of player "
+                        + timeline.getOwner(planet, turn) + ", simulation " + simulated.getNumShips(planet)
+                        + " ships of player " + simulated.getOwner(planet));
+            }
+        }
+
+        simpw.rollback(checkpoint);
+    }
+}
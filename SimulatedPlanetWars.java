@@ -0,0 +1,647 @@
+import planetWarsAPI.ChangeSet;
+import planetWarsAPI.GameState;
+import planetWarsAPI.Planet;
+import planetWarsAPI.PlanetWars;
+import planetWarsAPI.Rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SimulatedPlanetWars
+ * Class which provide the simulation environment
+ * <p>
+ * For information about what each method does, see its equivalent PlanetWars
+ * <p>
+ * The simulation works in place on its own copy of the game state. Every operation
+ * (an attack, a growth step) records the values it overwrites in an undo log, so it can be
+ * taken back with {@link #undo()} or {@link #rollback(int)}. This makes it possible to try
+ * many alternatives on a single instance instead of creating a new one for each of them:
+ * <pre>{@code
+ * int checkpoint = simpw.checkpoint();
+ * simpw.simulateAttack(source, dest);
+ * simpw.simulateGrowth();
+ * double score = evaluateState(simpw);
+ * simpw.rollback(checkpoint);
+ * }</pre>
+ * <p>
+ * Fleets in flight are simulated too. Those of the real game are taken over from the game state, and every call
+ * of {@link #simulateGrowth()} advances them one turn, after which all fleets arriving at a planet in that turn
+ * fight there at once (see {@link Rules}). By default our own simulated attacks still arrive immediately, which
+ * is what LookaheadBot assumes. With {@link #setFleetTravel(boolean)} they become fleets that need
+ * as many turns to arrive as the distance between the planets, like in the real game.
+ *
+ * @version 2.0
+ * @see PlanetWars
+ */
+public class SimulatedPlanetWars {
+
+    /**
+     * Value of a move which does nothing
+     */
+    public static final int NO_MOVE = -1;
+
+    /**
+     * Source of a move in which every planet of the player attacks the destination at once
+     */
+    public static final int ALL_SOURCES = 0xFFFF;
+
+    /**
+     * Number of ints an entry of the undo log takes: planet id, previous owner, previous ships
+     */
+    private static final int ENTRY_SIZE = 3;
+
+    private final GameState state;
+
+    /**
+     * Real state the simulation starts from
+     */
+    private GameState origin;
+
+    /**
+     * Values overwritten by the operations applied so far
+     */
+    private int[] undoLog = new int[ENTRY_SIZE * 64];
+    private int undoSize;
+
+    /**
+     * Per operation: where it starts in the undo log, and the fleet count, turn, hash and ships in flight before it.
+     * Fleets are only ever appended, so undoing them is cutting the fleet count back.
+     */
+    private int[] frameUndo = new int[64];
+    private int[] frameFleets = new int[64];
+    private int[] frameTurn = new int[64];
+    private long[] frameHash = new long[64];
+    private int[] frameInFlight = new int[64 * 2];
+    private int numFrames;
+
+    /**
+     * Zobrist hash of the current state, kept up to date on every change
+     */
+    private long hash;
+
+    /**
+     * Whether simulated attacks travel, instead of arriving immediately
+     */
+    private boolean fleetTravel;
+
+    /**
+     * Number of turns simulated so far
+     */
+    private int turn;
+
+    /**
+     * Fleets, as parallel arrays. A fleet is in flight while its arrival turn is after the current turn.
+     */
+    private int numFleets;
+    private int[] fleetOwner = new int[64];
+    private int[] fleetShips = new int[64];
+    private int[] fleetDest = new int[64];
+    private int[] fleetArrival = new int[64];
+
+    /**
+     * Ships in flight of player 1 and player 2, at index owner - 1
+     */
+    private final int[] inFlight = new int[2];
+
+    /**
+     * Scratch space to gather the fleets arriving in a turn: ships per planet and owner, and the planets involved
+     */
+    private final int[] arriving;
+    private final int[] arrivalPlanets;
+    private final int[] forces = new int[3];
+
+    public SimulatedPlanetWars(PlanetWars pw) {
+        origin = pw.getState();
+        state = new GameState(origin);
+        arriving = new int[state.numPlanets() * 3];
+        arrivalPlanets = new int[state.numPlanets()];
+
+        for (int i = 0; i < state.numPlanets(); i++)
+            hash += Zobrist.key(i, state.getOwner(i), state.getNumShips(i));
+
+        for (int i = 0; i < state.numFleets(); i++)
+            addFleet(state.getFleetOwner(i), state.getFleetShips(i), state.getFleetDest(i),
+                Math.max(1, state.getFleetTurnsRemaining(i)));
+    }
+
+    /**
+     * Move the simulation on to the next turn of the real game, so it can be used again instead of a new one.
+     * Only the planets that changed are rewritten, and the hash is updated for those only; the fleets in flight
+     * are taken over again. All operations have to be taken back first.
+     *
+     * @param changes what changed since the state the simulation starts from
+     * @return true if the simulation now starts from the new state, false if it can not be moved on,
+     * because it is a new game, the simulation did not start from the previous state, or operations are pending
+     */
+    public boolean update(ChangeSet changes) {
+        if (changes.isNewGame() || changes.getPrevious() != origin || numFrames != 0)
+            return false;
+
+        GameState next = changes.getCurrent();
+        for (int k = 0; k < changes.numChanged(); k++) {
+            int planet = changes.getChangedPlanet(k);
+            hash += Zobrist.key(planet, next.getOwner(planet), next.getNumShips(planet))
+                - Zobrist.key(planet, state.getOwner(planet), state.getNumShips(planet));
+            state.setOwner(planet, next.getOwner(planet));
+            state.setNumShips(planet, next.getNumShips(planet));
+        }
+
+        for (int i = 0; i < numFleets; i++)
+            hash -= Zobrist.fleetKey(fleetOwner[i], fleetShips[i], fleetDest[i], fleetArrival[i] - turn);
+        numFleets = 0;
+        inFlight[0] = 0;
+        inFlight[1] = 0;
+        for (int i = 0; i < next.numFleets(); i++)
+            addFleet(next.getFleetOwner(i), next.getFleetShips(i), next.getFleetDest(i),
+                Math.max(1, next.getFleetTurnsRemaining(i)));
+
+        origin = next;
+        return true;
+    }
+
+    /**
+     * Choose whether simulated attacks travel for as many turns as the distance between the planets,
+     * or arrive immediately (the default)
+     *
+     * @param fleetTravel true to let attacks travel
+     */
+    public void setFleetTravel(boolean fleetTravel) {
+        this.fleetTravel = fleetTravel;
+    }
+
+    /**
+     * Return the Zobrist hash of the current state.
+     * Equal states have equal hashes, whatever moves led to them.
+     *
+     * @return 64 bit hash of the planets, owners and ships, and the fleets in flight
+     * @see Zobrist
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Return the simulated state. Read from it freely, but change it only through this class,
+     * otherwise undo will not restore it correctly.
+     *
+     * @return the simulated state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Encode an attack from source to dest as a single int
+     *
+     * @param source id of the source planet
+     * @param dest   id of the destination planet
+     * @return the encoded move
+     */
+    public static int move(int source, int dest) {
+        return (source << 16) | dest;
+    }
+
+    /**
+     * Encode an attack on dest by every planet of the player that has ships to spare
+     *
+     * @param dest id of the destination planet
+     * @return the encoded move
+     * @see #simulateCombinedAttack(int, int)
+     */
+    public static int combinedMove(int dest) {
+        return move(ALL_SOURCES, dest);
+    }
+
+    public static int moveSource(int move) {
+        return move >>> 16;
+    }
+
+    public static int moveDest(int move) {
+        return move & 0xFFFF;
+    }
+
+    public static boolean isCombinedMove(int move) {
+        return move != NO_MOVE && moveSource(move) == ALL_SOURCES;
+    }
+
+    /**
+     * Apply an encoded move for the given player
+     *
+     * @param player id of the player making the move
+     * @param move   encoded move, or NO_MOVE
+     */
+    public void apply(int player, int move) {
+        if (move == NO_MOVE)
+            simulateAttack(player, -1, -1);
+        else if (isCombinedMove(move))
+            simulateCombinedAttack(player, moveDest(move));
+        else
+            simulateAttack(player, moveSource(move), moveDest(move));
+    }
+
+    /**
+     * Issue the orders of an encoded move of player 1 in the real game.
+     * A combined move becomes one order for every planet that takes part in it.
+     *
+     * @param pw   The game state
+     * @param move encoded move, or NO_MOVE
+     */
+    public static void issueMove(PlanetWars pw, int move) {
+        if (move == NO_MOVE)
+            return;
+
+        int dest = moveDest(move);
+        if (!isCombinedMove(move)) {
+            pw.issueOrder(moveSource(move), dest);
+            return;
+        }
+
+        GameState state = pw.getState();
+        for (int source = 0; source < state.numPlanets(); source++)
+            if (joinsCombinedAttack(state, PlanetWars.PLAYER, source, dest))
+                pw.issueOrder(source, dest);
+    }
+
+    private static boolean joinsCombinedAttack(GameState state, int player, int source, int dest) {
+        return source != dest && state.getOwner(source) == player && state.getNumShips(source) > 1;
+    }
+
+    /**
+     * Return a checkpoint that can be rolled back to later
+     *
+     * @return the number of operations applied so far
+     */
+    public int checkpoint() {
+        return numFrames;
+    }
+
+    /**
+     * Take back the last operation
+     */
+    public void undo() {
+        numFrames--;
+        int frameStart = frameUndo[numFrames];
+        while (undoSize > frameStart) {
+            undoSize -= ENTRY_SIZE;
+            int planet = undoLog[undoSize];
+            state.setOwner(planet, undoLog[undoSize + 1]);
+            state.setNumShips(planet, undoLog[undoSize + 2]);
+        }
+
+        numFleets = frameFleets[numFrames];
+        turn = frameTurn[numFrames];
+        hash = frameHash[numFrames];
+        inFlight[0] = frameInFlight[2 * numFrames];
+        inFlight[1] = frameInFlight[2 * numFrames + 1];
+    }
+
+    /**
+     * Take back all operations applied after the given checkpoint
+     *
+     * @param checkpoint value returned by {@link #checkpoint()}
+     */
+    public void rollback(int checkpoint) {
+        while (numFrames > checkpoint)
+            undo();
+    }
+
+    private void beginFrame() {
+        if (numFrames == frameUndo.length) {
+            int capacity = numFrames * 2;
+            frameUndo = Arrays.copyOf(frameUndo, capacity);
+            frameFleets = Arrays.copyOf(frameFleets, capacity);
+            frameTurn = Arrays.copyOf(frameTurn, capacity);
+            frameHash = Arrays.copyOf(frameHash, capacity);
+            frameInFlight = Arrays.copyOf(frameInFlight, capacity * 2);
+        }
+
+        frameUndo[numFrames] = undoSize;
+        frameFleets[numFrames] = numFleets;
+        frameTurn[numFrames] = turn;
+        frameHash[numFrames] = hash;
+        frameInFlight[2 * numFrames] = inFlight[0];
+        frameInFlight[2 * numFrames + 1] = inFlight[1];
+        numFrames++;
+    }
+
+    /**
+     * Launch a fleet that arrives after the given number of turns
+     */
+    private void addFleet(int owner, int numShips, int dest, int turns) {
+        if (numFleets == fleetOwner.length) {
+            int capacity = numFleets * 2;
+            fleetOwner = Arrays.copyOf(fleetOwner, capacity);
+            fleetShips = Arrays.copyOf(fleetShips, capacity);
+            fleetDest = Arrays.copyOf(fleetDest, capacity);
+            fleetArrival = Arrays.copyOf(fleetArrival, capacity);
+        }
+
+        fleetOwner[numFleets] = owner;
+        fleetShips[numFleets] = numShips;
+        fleetDest[numFleets] = dest;
+        fleetArrival[numFleets] = turn + turns;
+        numFleets++;
+
+        inFlight[owner - 1] += numShips;
+        hash += Zobrist.fleetKey(owner, numShips, dest, turns);
+    }
+
+    private void set(int planet, int owner, int numShips) {
+        if (undoSize == undoLog.length)
+            undoLog = Arrays.copyOf(undoLog, undoSize * 2);
+        undoLog[undoSize] = planet;
+        undoLog[undoSize + 1] = state.getOwner(planet);
+        undoLog[undoSize + 2] = state.getNumShips(planet);
+        undoSize += ENTRY_SIZE;
+
+        hash += Zobrist.key(planet, owner, numShips)
+            - Zobrist.key(planet, state.getOwner(planet), state.getNumShips(planet));
+        state.setOwner(planet, owner);
+        state.setNumShips(planet, numShips);
+    }
+
+    /**
+     * Simulate the end of a turn: owned planets grow, fleets move one step closer to their destination,
+     * and the fleets that arrive fight at their destination.
+     */
+    public void simulateGrowth() {
+        beginFrame();
+
+        for (int i = state.nextPlanetNotOwnedBy(PlanetWars.NEUTRAL, 0); i >= 0;
+             i = state.nextPlanetNotOwnedBy(PlanetWars.NEUTRAL, i + 1))
+            set(i, state.getOwner(i), state.getNumShips(i) + state.getGrowthRate(i));
+
+        if (numFleets > 0)
+            advanceFleets();
+    }
+
+    /**
+     * Move all fleets in flight one turn ahead, and resolve the battles of the ones that arrive
+     */
+    private void advanceFleets() {
+        turn++;
+
+        int numArrivalPlanets = 0;
+        for (int i = 0; i < numFleets; i++) {
+            int turnsRemaining = fleetArrival[i] - turn;
+            if (turnsRemaining < 0)
+                continue;
+
+            int owner = fleetOwner[i];
+            int dest = fleetDest[i];
+            hash -= Zobrist.fleetKey(owner, fleetShips[i], dest, turnsRemaining + 1);
+            if (turnsRemaining > 0) {
+                hash += Zobrist.fleetKey(owner, fleetShips[i], dest, turnsRemaining);
+                continue;
+            }
+
+            // Arrives now: gather its ships at the destination
+            if (arriving[dest * 3 + 1] == 0 && arriving[dest * 3 + 2] == 0)
+                arrivalPlanets[numArrivalPlanets++] = dest;
+            arriving[dest * 3 + owner] += fleetShips[i];
+            inFlight[owner - 1] -= fleetShips[i];
+        }
+
+        for (int k = 0; k < numArrivalPlanets; k++) {
+            int planet = arrivalPlanets[k];
+            int owner = state.getOwner(planet);
+
+            forces[0] = 0;
+            forces[1] = arriving[planet * 3 + 1];
+            forces[2] = arriving[planet * 3 + 2];
+            forces[owner] += state.getNumShips(planet);
+            set(planet, Rules.battleOwner(forces, owner), Rules.battleShips(forces));
+
+            arriving[planet * 3 + 1] = 0;
+            arriving[planet * 3 + 2] = 0;
+        }
+    }
+
+    /**
+     * Simulate an attack between two planets, by id. A source of -1 means no attack,
+     * which still counts as an operation for undo.
+     */
+    public void simulateAttack(int player, int source, int dest) {
+        beginFrame();
+
+        if (source < 0 || dest < 0 || state.getOwner(source) != player)
+            return;
+
+        if (fleetTravel) {
+            launch(player, source, dest);
+            return;
+        }
+
+        // Simulate attack
+        int sourceShips = state.getNumShips(source);
+        int sourceOwner = state.getOwner(source);
+        int remnantFleet = state.getNumShips(dest) - sourceShips / 2;
+        int owner = state.getOwner(dest);
+
+        if (remnantFleet < 0)
+            owner = player;
+
+        set(source, sourceOwner, sourceShips / 2);
+        set(dest, owner, Math.abs(remnantFleet));
+    }
+
+    /**
+     * Simulate an attack on a planet by every planet of the player with more than one ship.
+     * Each of them sends half of its ships, and the fleets are assumed to arrive together,
+     * so the destination fights them all at once. This is a single operation for undo.
+     */
+    public void simulateCombinedAttack(int player, int dest) {
+        beginFrame();
+
+        int attackers = 0;
+        for (int source = 0; source < state.numPlanets(); source++) {
+            if (!joinsCombinedAttack(state, player, source, dest))
+                continue;
+
+            if (fleetTravel) {
+                launch(player, source, dest);
+                continue;
+            }
+
+            int sourceShips = state.getNumShips(source);
+            attackers += sourceShips / 2;
+            set(source, player, sourceShips / 2);
+        }
+
+        if (attackers == 0)
+            return;
+
+        int owner = state.getOwner(dest);
+        if (owner == player) {
+            set(dest, owner, state.getNumShips(dest) + attackers);
+        } else {
+            int remnantFleet = state.getNumShips(dest) - attackers;
+            set(dest, remnantFleet < 0 ? player : owner, Math.abs(remnantFleet));
+        }
+    }
+
+    /**
+     * Send half of the ships of the source as a fleet, which arrives after the distance in turns
+     */
+    private void launch(int player, int source, int dest) {
+        int sourceShips = state.getNumShips(source);
+        int ships = sourceShips / 2;
+        if (ships == 0 || source == dest)
+            return;
+
+        set(source, player, sourceShips - ships);
+        addFleet(player, ships, dest, state.getDistances().getTurns(source, dest));
+    }
+
+    public void simulateAttack(int player, Planet source, Planet dest) {
+        if (source != null && dest != null)
+            simulateAttack(player, source.getID(), dest.getID());
+        else
+            simulateAttack(player, -1, -1);
+    }
+
+    public void simulateAttack(Planet source, Planet dest) {
+        simulateAttack(1, source, dest);
+    }
+
+
+    public void simulateBullyBotAttack() {
+        int source = -1;
+        int dest = -1;
+
+        double sourceScore = Double.MIN_VALUE;
+        double destScore = Double.MAX_VALUE;
+
+        for (int i = 0; i < state.numPlanets(); i++) {
+            int owner = state.getOwner(i);
+            int numShips = state.getNumShips(i);
+
+            if (owner == PlanetWars.ENEMY) {
+                if (numShips <= 1) continue;
+                double scoreMax = (double) numShips;
+                if (scoreMax > sourceScore) {
+                    sourceScore = scoreMax;
+                    source = i;
+                }
+            }
+
+            // (2) Find the weakest enemy or neutral planet.
+            if (owner != PlanetWars.ENEMY) {
+                double scoreMin = (double) numShips;
+                if (scoreMin < destScore) {
+                    destScore = scoreMin;
+                    dest = i;
+                }
+            }
+
+        }
+
+        // (3) Simulate attack
+        if (source >= 0 && dest >= 0)
+            simulateAttack(2, source, dest);
+        else
+            simulateAttack(2, -1, -1);
+    }
+
+    /**
+     * Simulate the enemy's turn as a model of the opponent predicts it, instead of assuming it is BullyBot.
+     * A model that has not seen the enemy play yet predicts the BullyBot attack.
+     *
+     * @param model model of the opponent, kept up to date every turn
+     */
+    public void simulateOpponentAttack(OpponentModel model) {
+        apply(PlanetWars.ENEMY, model.predictMove(this, PlanetWars.ENEMY));
+    }
+
+    public int numPlanets() {
+        return state.numPlanets();
+    }
+
+    /**
+     * Note: this creates a new Planet holding the current data, use getState() in loops.
+     */
+    public Planet getPlanet(int planetID) {
+        return state.toPlanet(planetID);
+    }
+
+    public List<Planet> getAllPlanets() {
+        List<Planet> r = new ArrayList<Planet>();
+
+        for (int i = 0; i < state.numPlanets(); i++)
+            r.add(state.toPlanet(i));
+
+        return r;
+    }
+
+
+    public List<Planet> getMyPlanets() {
+        List<Planet> r = new ArrayList<Planet>();
+
+        for (int i = state.nextPlanet(PlanetWars.PLAYER, 0); i >= 0; i = state.nextPlanet(PlanetWars.PLAYER, i + 1))
+            r.add(state.toPlanet(i));
+
+        return r;
+    }
+
+    public List<Planet> getNeutralPlanets() {
+        List<Planet> r = new ArrayList<Planet>();
+
+        for (int i = state.nextPlanet(PlanetWars.NEUTRAL, 0); i >= 0; i = state.nextPlanet(PlanetWars.NEUTRAL, i + 1))
+            r.add(state.toPlanet(i));
+
+        return r;
+    }
+
+    public List<Planet> getEnemyPlanets() {
+        List<Planet> r = new ArrayList<Planet>();
+
+        for (int i = state.nextEnemyPlanet(0); i >= 0; i = state.nextEnemyPlanet(i + 1))
+            r.add(state.toPlanet(i));
+
+        return r;
+    }
+
+    public List<Planet> getNotMyPlanets() {
+        List<Planet> r = new ArrayList<Planet>();
+
+        for (int i = state.nextPlanetNotOwnedBy(PlanetWars.PLAYER, 0); i >= 0; i = state.nextPlanetNotOwnedBy(PlanetWars.PLAYER, i + 1))
+            r.add(state.toPlanet(i));
+
+        return r;
+    }
+
+    public boolean isPlayerAlive(int player) {
+        return state.countPlanets(player) > 0 || getShipsInFlight(player) > 0;
+    }
+
+    public int getWinner() {
+        if (state.numPlanets() == 0)
+            return 0;
+
+        int winner = state.getOwner(0);
+        if (state.countPlanets(winner) != state.numPlanets())
+            return -1;
+
+        return winner;
+    }
+
+    /**
+     * Return the number of ships of a player, on its planets and in flight
+     */
+    public int getNumShips(int player) {
+        return state.getPlayerShips(player) + (player == 1 || player == 2 ? inFlight[player - 1] : 0);
+    }
+
+    /**
+     * Return the number of ships of a player in flight
+     */
+    public int getShipsInFlight(int player) {
+        return player == 1 || player == 2 ? inFlight[player - 1] : 0;
+    }
+
+    public void issueOrder(Planet source, Planet dest) {
+        simulateAttack(source, dest);
+    }
+}
@@ -0,0 +1,128 @@
+import planetWarsAPI.MapGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * StartupBenchmarks
+ * Measures how long a bot process takes from its start until it has answered its first turn, the time a new JVM
+ * per game costs.
+ * <p>
+ * Every bot is started a number of times without and with the class-data sharing archive made by
+ * scripts/cds-build.sh. Each run gets one turn on a made-up state, and the time until its "go" line is measured.
+ * The median and 90th percentile of both are reported, so the gain of the archive can be read off directly.
+ * <p>
+ * Usage:
+ * <pre>
+ * java StartupBenchmarks [-runs N] [-archive file] BotClass...
+ * </pre>
+ * Example:
+ * <pre>
+ * java -cp build/bots.jar StartupBenchmarks -archive build/bots.jsa BullyBot LookaheadBot
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class StartupBenchmarks {
+
+    /**
+     * Number of planets and fraction owned by a player of the state of the first turn
+     */
+    private static final int PLANETS = 30;
+    private static final double OWNED_FRACTION = 0.4;
+
+    private final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    private final String classPath = System.getProperty("java.class.path");
+    private final byte[] firstTurn = (MapGenerator.format(MapGenerator.generate(PLANETS, 1, OWNED_FRACTION))
+        + "go\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Start a bot, give it one turn, and return the nanoseconds until it finished the turn
+     *
+     * @param options options of the JVM
+     */
+    long measure(String botName, List<String> options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(java);
+        command.addAll(options);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(botName);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        OutputStream in = process.getOutputStream();
+        in.write(firstTurn);
+        in.flush();
+
+        // The turn is over at the first "go" line
+        InputStream out = process.getInputStream();
+        int matched = 0;
+        int c;
+        while (matched < 3 && (c = out.read()) >= 0)
+            matched = c == "go\n".charAt(matched) ? matched + 1 : c == 'g' ? 1 : 0;
+        long elapsed = System.nanoTime() - start;
+
+        in.close();
+        process.waitFor();
+        if (matched < 3)
+            throw new IllegalStateException(botName + " ended without finishing its turn");
+        return elapsed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        String archive = "build/bots.jsa";
+        List<String> botNames = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-runs"))
+                runs = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-archive"))
+                archive = args[++i];
+            else
+                botNames.add(args[i]);
+        }
+
+        if (botNames.isEmpty()) {
+            System.err.println("Usage: java StartupBenchmarks [-runs N] [-archive file] BotClass...");
+            System.exit(1);
+        }
+        if (!new File(archive).isFile()) {
+            System.err.println("No archive " + archive + ", build it with scripts/cds-build.sh");
+            System.exit(1);
+        }
+
+        StartupBenchmarks benchmarks = new StartupBenchmarks();
+        List<String> plain = Arrays.asList("-Xshare:auto");
+        List<String> shared = Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto");
+
+        System.out.println(String.format(Locale.US, "%-16s %14s %14s %14s %14s %10s",
+            "Bot", "p50 (ms)", "p90 (ms)", "p50 CDS (ms)", "p90 CDS (ms)", "gain"));
+        for (String botName : botNames) {
+            long[] without = new long[runs];
+            long[] with = new long[runs];
+            // Alternate, so both see the same load on the machine
+            for (int run = 0; run < runs; run++) {
+                without[run] = benchmarks.measure(botName, plain);
+                with[run] = benchmarks.measure(botName, shared);
+            }
+            Arrays.sort(without);
+            Arrays.sort(with);
+
+            long medianWithout = without[runs / 2];
+            long medianWith = with[runs / 2];
+            System.out.println(String.format(Locale.US, "%-16s %14.1f %14.1f %14.1f %14.1f %9.1f%%",
+                botName, medianWithout / 1e6, without[runs * 9 / 10] / 1e6,
+                medianWith / 1e6, with[runs * 9 / 10] / 1e6,
+                100.0 * (medianWithout - medianWith) / medianWithout));
+        }
+    }
+}
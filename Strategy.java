@@ -0,0 +1,40 @@
+/**
+ * Strategy
+ * The strategies AdaptiveBot can choose from each turn, one per bot it knows how to play like.
+ * <p>
+ * To add a strategy, add a constant with the class name of its bot, and play it in AdaptiveBot.doTurn.
+ * AdaptivityTrainer then also tries it.
+ *
+ * @version 1.0
+ * @see AdaptivityMap
+ */
+public enum Strategy {
+    BULLY_BOT("BullyBot"),
+    RANDOM_BOT("RandomBot");
+
+    private final String botName;
+
+    Strategy(String botName) {
+        this.botName = botName;
+    }
+
+    /**
+     * Return the class name of the bot that plays this strategy
+     */
+    public String getBotName() {
+        return botName;
+    }
+
+    /**
+     * Return the strategy of a bot
+     *
+     * @param botName class name of the bot
+     * @return the strategy, or null if no strategy plays like that bot
+     */
+    public static Strategy forBotName(String botName) {
+        for (Strategy strategy : values())
+            if (strategy.botName.equals(botName))
+                return strategy;
+        return null;
+    }
+}
@@ -0,0 +1,217 @@
+import planetWarsAPI.DistanceMatrix;
+import planetWarsAPI.GameState;
+import planetWarsAPI.PlanetWars;
+import planetWarsAPI.Rules;
+
+import java.util.Arrays;
+
+/**
+ * Timeline
+ * Predicts the owner and ships of every planet for a number of turns ahead.
+ * <p>
+ * Planets only influence each other through fleets. So given the fleets that are in flight, the future of every
+ * planet can be computed on its own, turn by turn: owned planets grow, and the fleets arriving in a turn fight
+ * (see {@link Rules}). The timeline does this once for all planets up to its horizon, after which asking who owns
+ * a planet, or how many ships it has, at some turn is a single array lookup.
+ * <p>
+ * Orders can be tried on the timeline. An order takes ships from its source now, and adds a fleet arriving at
+ * its destination later, so only the timelines of those two planets are recomputed, and for the destination
+ * only from the arrival onwards. Orders are taken back in reverse order:
+ * <pre>{@code
+ * Timeline timeline = new Timeline(pw.getState(), 30);
+ * timeline.addOrder(source, dest);
+ * boolean captured = timeline.getOwner(dest, timeline.getHorizon()) == PlanetWars.PLAYER;
+ * timeline.undoOrder();
+ * }</pre>
+ * Fleets that arrive after the horizon are not taken into account.
+ *
+ * @version 1.0
+ */
+public class Timeline {
+
+    private final GameState state;
+    private final DistanceMatrix distances;
+    private final int horizon;
+
+    /**
+     * Number of entries per planet: turn 0 (now) up to the horizon
+     */
+    private final int length;
+
+    /**
+     * Owner and ships per planet and turn, entry planet * length + turn
+     */
+    private final int[] owner;
+    private final int[] ships;
+
+    /**
+     * Ships arriving per planet, turn and player, entry (planet * length + turn) * 2 + player - 1
+     */
+    private final int[] arriving;
+
+    /**
+     * Ships that left each planet this turn because of the orders tried
+     */
+    private final int[] departed;
+
+    /**
+     * Orders tried so far, as source, destination and ships triples
+     */
+    private int[] orders = new int[3 * 16];
+    private int numOrders;
+
+    private final int[] forces = new int[3];
+
+    /**
+     * Predict the future of a game state, given the fleets in flight
+     *
+     * @param state   the current state
+     * @param horizon number of turns to look ahead
+     */
+    public Timeline(GameState state, int horizon) {
+        this.state = state;
+        this.distances = state.getDistances();
+        this.horizon = horizon;
+        this.length = horizon + 1;
+
+        int numPlanets = state.numPlanets();
+        owner = new int[numPlanets * length];
+        ships = new int[numPlanets * length];
+        arriving = new int[numPlanets * length * 2];
+        departed = new int[numPlanets];
+
+        for (int i = 0; i < state.numFleets(); i++) {
+            int turn = Math.max(1, state.getFleetTurnsRemaining(i));
+            if (turn <= horizon)
+                arriving[(state.getFleetDest(i) * length + turn) * 2 + state.getFleetOwner(i) - 1]
+                    += state.getFleetShips(i);
+        }
+
+        for (int planet = 0; planet < numPlanets; planet++)
+            project(planet, 0);
+    }
+
+    /**
+     * Return the number of turns this timeline looks ahead
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Return the owner a planet will have
+     *
+     * @param planetID id of the planet
+     * @param turn     turns from now, between 0 and the horizon
+     * @return the owner at that turn
+     */
+    public int getOwner(int planetID, int turn) {
+        return owner[planetID * length + turn];
+    }
+
+    /**
+     * Return the number of ships a planet will have
+     *
+     * @param planetID id of the planet
+     * @param turn     turns from now, between 0 and the horizon
+     * @return the ships at that turn
+     */
+    public int getNumShips(int planetID, int turn) {
+        return ships[planetID * length + turn];
+    }
+
+    /**
+     * Try an order: half of the ships still on the source leave now, and arrive at the destination
+     * after the distance between the planets in turns.
+     *
+     * @param source id of the source planet, owned by a player
+     * @param dest   id of the destination planet
+     * @return number of ships sent
+     */
+    public int addOrder(int source, int dest) {
+        int sent = (state.getNumShips(source) - departed[source]) / 2;
+        if (source == dest || state.getOwner(source) == PlanetWars.NEUTRAL)
+            sent = 0;
+
+        if (numOrders * 3 == orders.length)
+            orders = Arrays.copyOf(orders, orders.length * 2);
+        orders[numOrders * 3] = source;
+        orders[numOrders * 3 + 1] = dest;
+        orders[numOrders * 3 + 2] = sent;
+        numOrders++;
+
+        if (sent > 0)
+            move(source, dest, sent);
+        return sent;
+    }
+
+    /**
+     * Take back the last order tried
+     */
+    public void undoOrder() {
+        numOrders--;
+        int sent = orders[numOrders * 3 + 2];
+        if (sent > 0)
+            move(orders[numOrders * 3], orders[numOrders * 3 + 1], -sent);
+    }
+
+    /**
+     * Take back all orders tried
+     */
+    public void clearOrders() {
+        while (numOrders > 0)
+            undoOrder();
+    }
+
+    /**
+     * Move ships from a source to a destination, or back for a negative number, and update both timelines
+     */
+    private void move(int source, int dest, int sent) {
+        departed[source] += sent;
+        project(source, 0);
+
+        int turn = distances.getTurns(source, dest);
+        if (turn <= horizon) {
+            arriving[(dest * length + turn) * 2 + state.getOwner(source) - 1] += sent;
+            project(dest, turn);
+        }
+    }
+
+    /**
+     * Compute the timeline of a planet from a turn onwards, the turns before it are unchanged
+     */
+    private void project(int planet, int from) {
+        int base = planet * length;
+        int currentOwner;
+        int currentShips;
+
+        if (from == 0) {
+            currentOwner = state.getOwner(planet);
+            currentShips = state.getNumShips(planet) - departed[planet];
+            owner[base] = currentOwner;
+            ships[base] = currentShips;
+            from = 1;
+        } else {
+            currentOwner = owner[base + from - 1];
+            currentShips = ships[base + from - 1];
+        }
+
+        for (int turn = from; turn <= horizon; turn++) {
+            if (currentOwner != PlanetWars.NEUTRAL)
+                currentShips += state.getGrowthRate(planet);
+
+            int arrivals = (base + turn) * 2;
+            if (arriving[arrivals] != 0 || arriving[arrivals + 1] != 0) {
+                forces[0] = 0;
+                forces[1] = arriving[arrivals];
+                forces[2] = arriving[arrivals + 1];
+                forces[currentOwner] += currentShips;
+                currentOwner = Rules.battleOwner(forces, currentOwner);
+                currentShips = Rules.battleShips(forces);
+            }
+
+            owner[base + turn] = currentOwner;
+            ships[base + turn] = currentShips;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameState;
+import planetWarsAPI.MatchEngine;
+import planetWarsAPI.MatchResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tournament
+ * Plays many games between bots with the in-process MatchEngine, and reports how strong each bot is.
+ * <p>
+ * Every pairing is played on every map, once from each side. In a round robin every bot plays every other bot,
+ * in a gauntlet one bot plays all the others. Games run in parallel on a fixed number of threads, and every
+ * finished game is appended to a log file as one line:
+ * <pre>
+ * player1,player2,map,winner,turns,decisionNanos1,decisionNanos2
+ * </pre>
+ * At the end, a table shows for every bot its Elo rating, its score (a draw counts as half a win) with a 95%
+ * confidence interval, and the average time its doTurn takes.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Tournament [-gauntlet BotName] [-threads N] [-rounds N] [-turns N] [-log file] mapDirectory Bot1 Bot2 ...
+ * </pre>
+ * Example:
+ * <pre>
+ * java Tournament -threads 8 -log games.csv maps BullyBot RandomBot LookaheadBot AdaptiveBot EmptyBot
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class Tournament {
+
+    /**
+     * z value of a 95% confidence interval
+     */
+    private static final double Z_95 = 1.96;
+
+    private final List<String> botNames;
+    private final List<File> maps;
+    private final List<GameState> mapStates = new ArrayList<GameState>();
+    private final int maxTurns;
+
+    // Totals per bot, indexed like botNames
+    private final double[] points;
+    private final int[] games;
+    private final int[] wins;
+    private final int[] draws;
+    private final long[] decisionNanos;
+    private final long[] turns;
+
+    // Number of games between bot i and bot j
+    private final int[][] pairGames;
+
+    public Tournament(List<String> botNames, List<File> maps, int maxTurns) throws IOException {
+        this.botNames = botNames;
+        this.maps = maps;
+        this.maxTurns = maxTurns;
+        for (File map : maps)
+            mapStates.add(MatchEngine.loadMap(map.toPath()));
+
+        int n = botNames.size();
+        points = new double[n];
+        games = new int[n];
+        wins = new int[n];
+        draws = new int[n];
+        decisionNanos = new long[n];
+        turns = new long[n];
+        pairGames = new int[n][n];
+    }
+
+    /**
+     * Create a new instance of a bot by its class name
+     */
+    static Bot createBot(String name) {
+        try {
+            return (Bot) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown bot: " + name, e);
+        }
+    }
+
+    /**
+     * Play all games and write each result to the log as soon as it is known
+     *
+     * @param champion index of the bot playing the gauntlet, or -1 for a round robin
+     * @param rounds   number of times every pairing plays every map from both sides
+     * @param threads  number of games played at the same time
+     * @param log      writer for the game log, or null
+     */
+    public void run(int champion, int rounds, int threads, BufferedWriter log)
+        throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<Game> completion = new ExecutorCompletionService<Game>(executor);
+        final ThreadLocal<MatchEngine> engines = new ThreadLocal<MatchEngine>() {
+            @Override
+            protected MatchEngine initialValue() {
+                return new MatchEngine(maxTurns);
+            }
+        };
+
+        int submitted = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < botNames.size(); i++) {
+                for (int j = 0; j < botNames.size(); j++) {
+                    if (i == j || (champion >= 0 && i != champion && j != champion))
+                        continue;
+
+                    for (int m = 0; m < maps.size(); m++) {
+                        final Game game = new Game(i, j, m);
+                        completion.submit(new Callable<Game>() {
+                            public Game call() {
+                                game.result = engines.get().play(createBot(botNames.get(game.player1)),
+                                    createBot(botNames.get(game.player2)), mapStates.get(game.map));
+                                return game;
+                            }
+                        });
+                        submitted++;
+                    }
+                }
+            }
+        }
+
+        try {
+            for (int k = 0; k < submitted; k++) {
+                Game game = completion.take().get();
+                record(game);
+                if (log != null) {
+                    MatchResult r = game.result;
+                    log.write(botNames.get(game.player1) + "," + botNames.get(game.player2) + ","
+                        + maps.get(game.map).getName() + "," + r.getWinner() + "," + r.getTurns() + ","
+                        + r.getDecisionNanos(1) + "," + r.getDecisionNanos(2));
+                    log.newLine();
+                    log.flush();
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void record(Game game) {
+        MatchResult result = game.result;
+        int[] players = {game.player1, game.player2};
+
+        for (int seat = 0; seat < 2; seat++) {
+            int bot = players[seat];
+            int opponent = players[1 - seat];
+            double score = result.getWinner() == 0 ? 0.5 : result.getWinner() == seat + 1 ? 1 : 0;
+
+            games[bot]++;
+            points[bot] += score;
+            if (score == 1)
+                wins[bot]++;
+            else if (score == 0.5)
+                draws[bot]++;
+            decisionNanos[bot] += result.getDecisionNanos(seat + 1);
+            turns[bot] += result.getTurns();
+            pairGames[bot][opponent]++;
+        }
+    }
+
+    /**
+     * Compute Elo ratings that best explain all results (Bradley-Terry maximum likelihood), with the average at 0.
+     * <p>
+     * Every bot gets one virtual draw against a bot of average strength, so ratings stay finite
+     * for bots that won or lost every game.
+     */
+    double[] eloRatings() {
+        int n = botNames.size();
+        double[] gamma = new double[n];
+        Arrays.fill(gamma, 1);
+
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            double[] next = new double[n];
+            for (int i = 0; i < n; i++) {
+                double won = points[i] + 0.5;
+                double expected = 1 / (gamma[i] + 1);
+                for (int j = 0; j < n; j++)
+                    if (pairGames[i][j] > 0)
+                        expected += pairGames[i][j] / (gamma[i] + gamma[j]);
+                next[i] = won / expected;
+            }
+
+            // Normalize so the geometric mean is 1, i.e. the average rating is 0
+            double logMean = 0;
+            for (double g : next)
+                logMean += Math.log(g) / n;
+            for (int i = 0; i < n; i++)
+                gamma[i] = next[i] / Math.exp(logMean);
+        }
+
+        double[] elo = new double[n];
+        for (int i = 0; i < n; i++)
+            elo[i] = 400 * Math.log10(gamma[i]);
+        return elo;
+    }
+
+    /**
+     * Return the table with the results of every bot
+     */
+    public String report() {
+        double[] elo = eloRatings();
+        StringBuilder s = new StringBuilder();
+        s.append(String.format(Locale.US, "%-16s %7s %6s %6s %6s %6s %17s %12s%n",
+            "Bot", "Elo", "Games", "Wins", "Draws", "Losses", "Score (95% CI)", "ms/turn"));
+
+        for (int i = 0; i < botNames.size(); i++) {
+            double[] interval = wilsonInterval(points[i], games[i]);
+            double rate = games[i] == 0 ? 0 : points[i] / games[i];
+            double msPerTurn = turns[i] == 0 ? 0 : decisionNanos[i] / 1e6 / turns[i];
+            s.append(String.format(Locale.US, "%-16s %7.1f %6d %6d %6d %6d %5.1f%% [%4.1f-%4.1f] %12.3f%n",
+                botNames.get(i), elo[i], games[i], wins[i], draws[i], games[i] - wins[i] - draws[i],
+                100 * rate, 100 * interval[0], 100 * interval[1], msPerTurn));
+        }
+
+        return s.toString();
+    }
+
+    /**
+     * Wilson score interval of a win rate, which behaves well for few games and rates near 0 or 1
+     */
+    static double[] wilsonInterval(double successes, int trials) {
+        if (trials == 0)
+            return new double[]{0, 1};
+
+        double p = successes / trials;
+        double z2 = Z_95 * Z_95;
+        double center = (p + z2 / (2 * trials)) / (1 + z2 / trials);
+        double margin = Z_95 * Math.sqrt(p * (1 - p) / trials + z2 / (4.0 * trials * trials)) / (1 + z2 / trials);
+        return new double[]{Math.max(0, center - margin), Math.min(1, center + margin)};
+    }
+
+    /**
+     * A single game of the tournament
+     */
+    private static class Game {
+        final int player1;
+        final int player2;
+        final int map;
+        MatchResult result;
+
+        Game(int player1, int player2, int map) {
+            this.player1 = player1;
+            this.player2 = player2;
+            this.map = map;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String gauntlet = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int rounds = 1;
+        int maxTurns = MatchEngine.DEFAULT_MAX_TURNS;
+        String logFile = null;
+        List<String> positional = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-gauntlet"))
+                gauntlet = args[++i];
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-rounds"))
+                rounds = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-turns"))
+                maxTurns = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-log"))
+                logFile = args[++i];
+            else
+                positional.add(args[i]);
+        }
+
+        if (positional.size() < 3) {
+            System.err.println("Usage: java Tournament [-gauntlet BotName] [-threads N] [-rounds N] [-turns N]"
+                + " [-log file] mapDirectory Bot1 Bot2 ...");
+            System.exit(1);
+        }
+
+        File[] mapFiles = new File(positional.get(0)).listFiles();
+        if (mapFiles == null) {
+            System.err.println("Not a directory: " + positional.get(0));
+            System.exit(1);
+        }
+        Arrays.sort(mapFiles);
+
+        List<String> bots = positional.subList(1, positional.size());
+        int champion = gauntlet == null ? -1 : bots.indexOf(gauntlet);
+        if (gauntlet != null && champion < 0) {
+            System.err.println("The gauntlet bot must be one of the bots: " + gauntlet);
+            System.exit(1);
+        }
+
+        Tournament tournament = new Tournament(bots, Arrays.asList(mapFiles), maxTurns);
+        BufferedWriter log = logFile == null ? null : new BufferedWriter(new FileWriter(logFile, true));
+        try {
+            tournament.run(champion, rounds, threads, log);
+        } finally {
+            if (log != null)
+                log.close();
+        }
+
+        System.out.print(tournament.report());
+    }
+}
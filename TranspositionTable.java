@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+/**
+ * TranspositionTable
+ * Remembers the results of searched states, so a state reached again by another order of moves
+ * does not have to be searched again.
+ * <p>
+ * The table has a fixed number of slots; a state goes into the slot picked by the low bits of its hash.
+ * When two states want the same slot, the new one replaces the old one if the old one comes from an
+ * earlier search, or if the new one was searched at least as deep. Everything is stored in primitive
+ * arrays, so storing and probing do not allocate.
+ * <p>
+ * Search results are not always exact scores: after an alpha-beta cutoff only a bound is known.
+ * Each entry therefore records whether its score is EXACT, a LOWER_BOUND or an UPPER_BOUND.
+ *
+ * @version 1.0
+ */
+public class TranspositionTable {
+
+    public static final byte EXACT = 0;
+    public static final byte LOWER_BOUND = 1;
+    public static final byte UPPER_BOUND = 2;
+
+    private final int mask;
+    private final long[] keys;
+    private final double[] scores;
+    private final int[] moves;
+    private final byte[] depths;
+    private final byte[] bounds;
+    private final byte[] generations;
+    private final boolean[] used;
+
+    /**
+     * Search the current entries belong to, so entries of earlier turns can be replaced first
+     */
+    private byte generation;
+
+    /**
+     * Create a table
+     *
+     * @param log2Size the table has 2^log2Size slots
+     */
+    public TranspositionTable(int log2Size) {
+        int size = 1 << log2Size;
+        mask = size - 1;
+        keys = new long[size];
+        scores = new double[size];
+        moves = new int[size];
+        depths = new byte[size];
+        bounds = new byte[size];
+        generations = new byte[size];
+        used = new boolean[size];
+    }
+
+    /**
+     * Mark the start of a new search. Entries of earlier searches stay usable, but are replaced first.
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Look up a state
+     *
+     * @param key hash of the state
+     * @return slot of the entry, or -1 if the state is not in the table
+     */
+    public int probe(long key) {
+        int slot = (int) key & mask;
+        return used[slot] && keys[slot] == key ? slot : -1;
+    }
+
+    public int getDepth(int slot) {
+        return depths[slot];
+    }
+
+    public byte getBound(int slot) {
+        return bounds[slot];
+    }
+
+    public double getScore(int slot) {
+        return scores[slot];
+    }
+
+    public int getMove(int slot) {
+        return moves[slot];
+    }
+
+    /**
+     * Store the result of a search
+     *
+     * @param key   hash of the state
+     * @param depth remaining depth the state was searched with
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score score found by the search
+     * @param move  best move found in the state
+     */
+    public void store(long key, int depth, byte bound, double score, int move) {
+        int slot = (int) key & mask;
+
+        if (used[slot] && keys[slot] != key && generations[slot] == generation && depths[slot] > depth)
+            return;
+
+        used[slot] = true;
+        keys[slot] = key;
+        depths[slot] = (byte) depth;
+        bounds[slot] = bound;
+        scores[slot] = score;
+        moves[slot] = move;
+        generations[slot] = generation;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+    }
+}
@@ -0,0 +1,275 @@
+import planetWarsAPI.Bot;
+import planetWarsAPI.GameState;
+import planetWarsAPI.MatchEngine;
+import planetWarsAPI.MatchResult;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tuner
+ * Tunes the weights of a WeightedEvaluator by playing games, with SPSA (simultaneous perturbation
+ * stochastic approximation).
+ * <p>
+ * Every iteration changes all weights at once by a random +c or -c, once in each direction, and lets an
+ * AlphaBetaBot with each of the two weight vectors play against BullyBot and RandomBot on every map, from both
+ * sides. The difference in score between the two vectors estimates the gradient, and the weights take a step
+ * in its direction. Steps get smaller as the iterations go on.
+ * <p>
+ * The games of both vectors of an iteration are played in parallel on all threads. After every iteration the
+ * weights are written to a checkpoint file. When the tuner is started with an existing checkpoint, it continues
+ * where that run stopped.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Tuner [-threads N] [-iterations N] [-depth N] [-turns N] [-checkpoint file] [-seed N] mapDirectory
+ * </pre>
+ * Example:
+ * <pre>
+ * java Tuner -iterations 200 -checkpoint weights.properties maps
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class Tuner {
+
+    /**
+     * Opponents every weight vector plays against
+     */
+    private static final String[] OPPONENTS = {"BullyBot", "RandomBot"};
+
+    /**
+     * SPSA gains: step size a, perturbation size c, stability constant A and the decay exponents
+     */
+    private static final double A_GAIN = 0.5;
+    private static final double C_GAIN = 0.1;
+    private static final double STABILITY = 10;
+    private static final double ALPHA = 0.602;
+    private static final double GAMMA = 0.101;
+
+    private final List<GameState> maps;
+    private final int depth;
+    private final int maxTurns;
+    private final ExecutorService executor;
+    private final ThreadLocal<MatchEngine> engines;
+    private long seed;
+
+    private double[] weights = new WeightedEvaluator().getWeights();
+    private int iteration;
+
+    public Tuner(List<GameState> maps, int depth, final int maxTurns, int threads, long seed) {
+        this.maps = maps;
+        this.depth = depth;
+        this.maxTurns = maxTurns;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.engines = new ThreadLocal<MatchEngine>() {
+            @Override
+            protected MatchEngine initialValue() {
+                return new MatchEngine(maxTurns);
+            }
+        };
+        this.seed = seed;
+    }
+
+    /**
+     * Run SPSA iterations until the given total number of iterations is reached
+     *
+     * @param iterations total number of iterations, including the ones of a resumed run
+     * @param checkpoint file to save the weights to after every iteration, or null
+     */
+    public void run(int iterations, File checkpoint) throws IOException, InterruptedException {
+        try {
+            for (; iteration < iterations; iteration++) {
+                double a = A_GAIN / Math.pow(iteration + 1 + STABILITY, ALPHA);
+                double c = C_GAIN / Math.pow(iteration + 1, GAMMA);
+
+                // Derived from the seed and the iteration, so a resumed run perturbs like an uninterrupted one
+                Random random = new Random(seed * 31 + iteration);
+                double[] delta = new double[weights.length];
+                double[] plus = new double[weights.length];
+                double[] minus = new double[weights.length];
+                for (int i = 0; i < weights.length; i++) {
+                    delta[i] = random.nextBoolean() ? 1 : -1;
+                    plus[i] = weights[i] + c * delta[i];
+                    minus[i] = weights[i] - c * delta[i];
+                }
+
+                // Submit the games of both vectors before waiting for any, so they share the threads
+                List<Future<Double>> plusGames = submitGames(plus);
+                List<Future<Double>> minusGames = submitGames(minus);
+                double plusScore = score(plusGames);
+                double minusScore = score(minusGames);
+
+                for (int i = 0; i < weights.length; i++)
+                    weights[i] += a * (plusScore - minusScore) / (2 * c * delta[i]);
+
+                System.out.println(String.format(Locale.US, "%5d  +%.3f  -%.3f  %s",
+                    iteration + 1, plusScore, minusScore, format(weights)));
+                if (checkpoint != null)
+                    save(checkpoint, iteration + 1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Play the games of a weight vector: against every opponent, on every map, from both sides
+     */
+    private List<Future<Double>> submitGames(final double[] candidate) {
+        List<Future<Double>> games = new ArrayList<Future<Double>>();
+
+        for (final String opponent : OPPONENTS) {
+            for (final GameState map : maps) {
+                for (final int seat : new int[]{1, 2}) {
+                    games.add(executor.submit(new Callable<Double>() {
+                        public Double call() {
+                            Bot tuned = new AlphaBetaBot(new WeightedEvaluator(candidate), depth);
+                            Bot other = Tournament.createBot(opponent);
+                            MatchResult result = seat == 1 ? engines.get().play(tuned, other, map)
+                                : engines.get().play(other, tuned, map);
+                            return result.getWinner() == 0 ? 0.5 : result.getWinner() == seat ? 1.0 : 0.0;
+                        }
+                    }));
+                }
+            }
+        }
+
+        return games;
+    }
+
+    /**
+     * Wait for the games of a weight vector and return its score, a draw counting as half a win
+     */
+    private double score(List<Future<Double>> games) throws InterruptedException {
+        double points = 0;
+        try {
+            for (Future<Double> game : games)
+                points += game.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return points / games.size();
+    }
+
+    /**
+     * Write the iteration and weights to a file. A new file replaces the old one at once,
+     * so a crash while saving can not leave a broken checkpoint.
+     */
+    private void save(File file, int completed) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("iteration", Integer.toString(completed));
+        properties.setProperty("seed", Long.toString(seed));
+        properties.setProperty("weights", format(weights));
+        properties.setProperty("features", Arrays.toString(WeightedEvaluator.Feature.values()));
+
+        File temporary = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temporary);
+        try {
+            properties.store(out, "Tuner checkpoint");
+        } finally {
+            out.close();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Continue from a checkpoint written by an earlier run
+     */
+    private void load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        iteration = Integer.parseInt(properties.getProperty("iteration"));
+        seed = Long.parseLong(properties.getProperty("seed"));
+        String[] values = properties.getProperty("weights").trim().split(" ");
+        double[] loaded = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            loaded[i] = Double.parseDouble(values[i]);
+        weights = new WeightedEvaluator(loaded).getWeights();
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder s = new StringBuilder();
+        for (double weight : weights)
+            s.append(s.length() == 0 ? "" : " ").append(String.format(Locale.US, "%.6f", weight));
+        return s.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int iterations = 100;
+        int depth = 2;
+        int maxTurns = MatchEngine.DEFAULT_MAX_TURNS;
+        String checkpointFile = null;
+        long seed = System.nanoTime();
+        List<String> positional = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-iterations"))
+                iterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-depth"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-turns"))
+                maxTurns = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-checkpoint"))
+                checkpointFile = args[++i];
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else
+                positional.add(args[i]);
+        }
+
+        if (positional.size() != 1) {
+            System.err.println("Usage: java Tuner [-threads N] [-iterations N] [-depth N] [-turns N]"
+                + " [-checkpoint file] [-seed N] mapDirectory");
+            System.exit(1);
+        }
+
+        File[] mapFiles = new File(positional.get(0)).listFiles();
+        if (mapFiles == null) {
+            System.err.println("Not a directory: " + positional.get(0));
+            System.exit(1);
+        }
+        Arrays.sort(mapFiles);
+        List<GameState> maps = new ArrayList<GameState>();
+        for (File map : mapFiles)
+            maps.add(MatchEngine.loadMap(map.toPath()));
+
+        Tuner tuner = new Tuner(maps, depth, maxTurns, threads, seed);
+        File checkpoint = checkpointFile == null ? null : new File(checkpointFile);
+        if (checkpoint != null && checkpoint.exists()) {
+            tuner.load(checkpoint);
+            System.out.println("Resuming at iteration " + tuner.iteration + ": " + format(tuner.weights));
+        }
+
+        tuner.run(iterations, checkpoint);
+        System.out.println("Weights " + Arrays.toString(WeightedEvaluator.Feature.values()) + ": "
+            + format(tuner.weights));
+    }
+}
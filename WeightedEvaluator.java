@@ -0,0 +1,174 @@
+import planetWarsAPI.DistanceMatrix;
+import planetWarsAPI.GameState;
+import planetWarsAPI.PlanetWars;
+
+import java.util.Arrays;
+
+/**
+ * WeightedEvaluator
+ * An evaluation function which is a weighted sum of features of the state.
+ * <p>
+ * Every feature compares us with the enemy, so it is positive when we are ahead:
+ * - SHIP_RATIO: (our ships + 1) / (enemy ships + 1), what LookaheadBot uses
+ * - SHIPS: our ships minus enemy ships, on planets and in flight
+ * - GROWTH: our growth rate minus the enemy growth rate
+ * - PLANETS: our number of planets minus the enemy number of planets
+ * - THREAT: how much the enemy's planets are threatened by ours, minus how much ours are threatened by theirs.
+ * A planet is threatened by the nearest planet of the opponent, with its ships divided by 1 + the distance in turns.
+ * <p>
+ * Ship, growth and planet totals are kept up to date by the game state, so they cost nothing. Only THREAT needs
+ * a pass over the planets, with a search for the nearest opposing planet from each, which takes up to
+ * numPlanets^2 steps when the opponent has few planets left. It is skipped when its weight is 0. The default
+ * weights only use SHIP_RATIO, which gives the same scores as LookaheadBot.evaluateState.
+ * <p>
+ * The moves of a node are scored one by one: every candidate changes the planets THREAT depends on, so there is
+ * no work to share between them. An instance keeps its feature buffer, so every thread needs its own instance.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * WeightedEvaluator evaluator = new WeightedEvaluator();
+ * evaluator.setWeight(WeightedEvaluator.Feature.GROWTH, 0.5);
+ * search.setEvaluator(evaluator);
+ * }</pre>
+ *
+ * @version 1.0
+ */
+public class WeightedEvaluator implements Evaluator {
+
+    /**
+     * The features of a state, in the order of the weights
+     */
+    public enum Feature {
+        SHIP_RATIO, SHIPS, GROWTH, PLANETS, THREAT
+    }
+
+    private static final int NUM_FEATURES = Feature.values().length;
+
+    private final double[] weights = new double[NUM_FEATURES];
+
+    /**
+     * Features of the state of evaluate
+     */
+    private final double[] row = new double[NUM_FEATURES];
+
+    /**
+     * Create an evaluator with the default weights, which only use the ship ratio
+     */
+    public WeightedEvaluator() {
+        weights[Feature.SHIP_RATIO.ordinal()] = 1;
+    }
+
+    /**
+     * Create an evaluator with the given weights
+     *
+     * @param weights one weight per feature, in the order of {@link Feature}
+     */
+    public WeightedEvaluator(double[] weights) {
+        setWeights(weights);
+    }
+
+    public double getWeight(Feature feature) {
+        return weights[feature.ordinal()];
+    }
+
+    public void setWeight(Feature feature, double weight) {
+        weights[feature.ordinal()] = weight;
+    }
+
+    /**
+     * Return a copy of all weights, in the order of {@link Feature}
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Set all weights at once
+     *
+     * @param weights one weight per feature, in the order of {@link Feature}
+     */
+    public void setWeights(double[] weights) {
+        if (weights.length != NUM_FEATURES)
+            throw new IllegalArgumentException("Expected " + NUM_FEATURES + " weights, got " + weights.length);
+        System.arraycopy(weights, 0, this.weights, 0, NUM_FEATURES);
+    }
+
+    public double evaluate(SimulatedPlanetWars simpw) {
+        computeFeatures(simpw, row, 0);
+        return dot(row, 0);
+    }
+
+    public void evaluateMoves(SimulatedPlanetWars simpw, int player, int[] moves, int count, double[] scores) {
+        for (int i = 0; i < count; i++) {
+            int checkpoint = simpw.checkpoint();
+            simpw.apply(player, moves[i]);
+            simpw.simulateGrowth();
+            scores[i] = evaluate(simpw);
+            simpw.rollback(checkpoint);
+        }
+    }
+
+    /**
+     * Write the features of the current state to an array
+     *
+     * @param simpw  The simulated state
+     * @param out    array to write to
+     * @param offset index of the first feature in the array
+     */
+    public void computeFeatures(SimulatedPlanetWars simpw, double[] out, int offset) {
+        GameState state = simpw.getState();
+        int myShips = simpw.getNumShips(PlanetWars.PLAYER);
+        int enemyShips = simpw.getNumShips(PlanetWars.ENEMY);
+
+        out[offset + Feature.SHIP_RATIO.ordinal()] = (myShips + 1.0) / (enemyShips + 1.0);
+        out[offset + Feature.SHIPS.ordinal()] = myShips - enemyShips;
+        out[offset + Feature.GROWTH.ordinal()] =
+            state.getPlayerGrowth(PlanetWars.PLAYER) - state.getPlayerGrowth(PlanetWars.ENEMY);
+        out[offset + Feature.PLANETS.ordinal()] =
+            state.countPlanets(PlanetWars.PLAYER) - state.countPlanets(PlanetWars.ENEMY);
+        out[offset + Feature.THREAT.ordinal()] = weights[Feature.THREAT.ordinal()] == 0 ? 0 : threat(state);
+    }
+
+    /**
+     * Threat to the enemy's planets minus threat to ours, walking the neighbours of every owned planet
+     * until one of the opponent's is found
+     */
+    private static double threat(GameState state) {
+        DistanceMatrix distances = state.getDistances();
+        double threat = 0;
+
+        for (int i = 0; i < state.numPlanets(); i++) {
+            int owner = state.getOwner(i);
+            if (owner == PlanetWars.NEUTRAL)
+                continue;
+
+            int opponent = owner == PlanetWars.PLAYER ? PlanetWars.ENEMY : PlanetWars.PLAYER;
+            if (state.countPlanets(opponent) == 0)
+                continue;
+
+            // The nearest planet of the opponent, found by walking the neighbours from near to far
+            for (int k = 0; k < distances.numNeighbours(); k++) {
+                int neighbour = distances.getNeighbour(i, k);
+                if (state.getOwner(neighbour) == opponent) {
+                    double pressure = state.getNumShips(neighbour) / (1.0 + distances.getTurns(i, neighbour));
+                    threat += owner == PlanetWars.PLAYER ? -pressure : pressure;
+                    break;
+                }
+            }
+        }
+
+        return threat;
+    }
+
+    private double dot(double[] features, int offset) {
+        double score = 0;
+        for (int f = 0; f < NUM_FEATURES; f++)
+            score += weights[f] * features[offset + f];
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "WeightedEvaluator" + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Zobrist
+ * Hash keys for simulated game states.
+ * <p>
+ * The hash of a state is the sum, modulo 2^64, of one 64 bit key per planet, which depends on the planet id,
+ * its owner and its number of ships. The hash can be kept up to date incrementally: when a planet changes,
+ * subtract the key of its old values and add the key of its new values. Two states with the same planets,
+ * owners and ships always get the same hash, no matter which moves led to them. Fleets in flight add a key
+ * of their own in the same way.
+ * <p>
+ * The keys are added rather than XOR'ed because a state may hold identical fleets: two XOR'ed equal keys
+ * cancel out, which would give the state the hash of the same state without both fleets.
+ * <p>
+ * Ship counts are unbounded, so instead of a table of random numbers the keys are produced by
+ * a strong 64 bit mixing function, which is just as good for hashing and needs no memory.
+ *
+ * @version 1.0
+ */
+public final class Zobrist {
+
+    /**
+     * Key XOR'ed into the hash of a state in which the enemy is to move
+     */
+    public static final long ENEMY_TO_MOVE = mix(0x5DEECE66DL);
+
+    /**
+     * Salt of the fleet keys, so they differ from the planet keys
+     */
+    private static final long FLEET = 0x6A09E667F3BCC908L;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Return the key of a single planet
+     *
+     * @param planetID id of the planet
+     * @param owner    owner of the planet
+     * @param numShips number of ships on the planet
+     * @return 64 bit key
+     */
+    public static long key(int planetID, int owner, int numShips) {
+        return mix(((long) planetID << 40) ^ ((long) owner << 32) ^ (numShips & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Return the key of a fleet in flight
+     *
+     * @param owner          owner of the fleet
+     * @param numShips       number of ships in the fleet
+     * @param dest           id of the destination planet
+     * @param turnsRemaining turns until the fleet arrives
+     * @return 64 bit key
+     */
+    public static long fleetKey(int owner, int numShips, int dest, int turnsRemaining) {
+        // Four fields do not fit in one word without overlap, so they are mixed in two rounds of two. Like any
+        // 64 bit key, different fleets can still get the same key, but only by chance.
+        long where = mix(FLEET ^ ((long) dest << 32) ^ (turnsRemaining & 0xFFFFFFFFL));
+        return mix(where ^ ((long) owner << 32) ^ (numShips & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator: every input bit affects every output bit
+     */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
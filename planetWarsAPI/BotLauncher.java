@@ -0,0 +1,104 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What the engine starts for a game when the bot runs in a {@link BotServer}.
+ * <p>
+ * The launcher connects to the server, asks it for a session with the bot, and then only copies bytes:
+ * standard input to the server, and the server's answers to standard output. It loads none of the bot's code,
+ * so it starts quickly. When no server is running, the launcher plays the game itself, like the bot's own main.
+ * <p>
+ * Usage, in place of "java BotClass":
+ * <pre>
+ * java planetWarsAPI.BotLauncher [-port N] BotClass
+ * </pre>
+ *
+ * @version 1.0
+ * @see BotServer
+ */
+public final class BotLauncher {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BotLauncher() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = BotServer.DEFAULT_PORT;
+        String botName = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[++i]);
+            else
+                botName = args[i];
+        }
+
+        if (botName == null) {
+            System.err.println("Usage: java planetWarsAPI.BotLauncher [-port N] BotClass");
+            System.exit(1);
+        }
+
+        final Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            System.err.println("WARNING: no bot server on port " + port + ", playing " + botName + " in this process");
+            GameClient.run(BotServer.createBot(botName));
+            return;
+        }
+
+        socket.setTcpNoDelay(true);
+        final InputStream fromServer = socket.getInputStream();
+        final OutputStream toServer = socket.getOutputStream();
+        toServer.write((botName + "\n").getBytes(StandardCharsets.ISO_8859_1));
+        toServer.flush();
+
+        String answer = BotServer.readLine(fromServer);
+        if (!BotServer.OK.equals(answer)) {
+            System.err.println("Bot server refused " + botName + ": " + answer);
+            System.exit(1);
+        }
+
+        // Game states to the server on a separate thread, orders back on this one
+        Thread forward = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    copy(System.in, toServer);
+                    socket.shutdownOutput();
+                } catch (IOException e) {
+                    // The server closed the session, the other direction ends as well
+                }
+            }
+        }, "forward");
+        forward.setDaemon(true);
+        forward.start();
+
+        copy(fromServer, System.out);
+        socket.close();
+    }
+
+    /**
+     * Copy a stream until it ends, passing on every read at once
+     */
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+            out.flush();
+        }
+    }
+}
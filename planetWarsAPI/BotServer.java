@@ -0,0 +1,230 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long running process that plays many games, so the JVM only starts and warms up once.
+ * <p>
+ * Normally the engine starts a new JVM for every game. Its first turns then run in the interpreter, until the
+ * JIT compiler has caught up, which is just when a bot has the most to consider. The server instead plays a
+ * number of games in-process at startup, so the hot code of every bot it serves is compiled before the first real
+ * game, and then waits for games on a local socket. The engine starts a {@link BotLauncher} for every game, which
+ * connects to the server and forwards the game.
+ * <p>
+ * Every connection is a game session with a new instance of the bot. Sessions run side by side, each on its
+ * own thread, with the same turn time limits as {@link GameClient}. The server only accepts connections from the
+ * local machine, and only creates the bots named on its command line.
+ * <p>
+ * The protocol is the one of the engine, preceded by a handshake: the launcher sends the class name of the bot
+ * on a line, and the server answers "ok", or "error" and a reason, on a line.
+ * <p>
+ * Usage:
+ * <pre>
+ * java planetWarsAPI.BotServer [-port N] [-warmup seconds] BotClass...
+ * </pre>
+ * Example, and a game on it:
+ * <pre>
+ * java planetWarsAPI.BotServer LookaheadBot AlphaBetaBot &amp;
+ * java planetWarsAPI.BotLauncher LookaheadBot
+ * </pre>
+ *
+ * @version 1.0
+ * @see BotLauncher
+ */
+public final class BotServer {
+    /**
+     * Port the server listens on when none is given
+     */
+    public static final int DEFAULT_PORT = 4747;
+
+    /**
+     * Time spent warming up when none is given
+     */
+    static final int DEFAULT_WARMUP_SECONDS = 10;
+
+    /**
+     * Answer to a handshake for a bot the server plays
+     */
+    static final String OK = "ok";
+
+    /**
+     * Turn limit and time budget of the warm-up games, short so many turns are played
+     */
+    private static final int WARMUP_TURNS = 100;
+    private static final long WARMUP_TURN_BUDGET_MILLIS = 20;
+
+    /**
+     * Number of planets of the warm-up maps, cycled through so all map sizes get compiled code
+     */
+    private static final int[] WARMUP_PLANETS = {10, 20, 30, 50};
+
+    private final List<String> botNames;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "session-" + sessions.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Create a server for some bots
+     *
+     * @param botNames class names of the bots it plays
+     */
+    public BotServer(List<String> botNames) {
+        this.botNames = new ArrayList<String>(botNames);
+    }
+
+    /**
+     * Play games against itself with every bot, for about the given time in total, so the JIT compiler
+     * compiles the code the bots run during a game, the parsing of game states and the sending of orders.
+     *
+     * @param warmupMillis time to spend warming up
+     */
+    public void warmUp(long warmupMillis) {
+        long perBot = warmupMillis / Math.max(1, botNames.size());
+        MatchEngine engine = new MatchEngine(WARMUP_TURNS);
+        engine.setTurnBudget(WARMUP_TURN_BUDGET_MILLIS);
+
+        for (String botName : botNames) {
+            long start = System.nanoTime();
+            long end = start + perBot * 1000000L;
+            int games = 0;
+            while (System.nanoTime() < end) {
+                int numPlanets = WARMUP_PLANETS[games % WARMUP_PLANETS.length];
+                engine.play(createBot(botName), createBot(botName), MapGenerator.generate(numPlanets, games));
+
+                // The same bot through the client, as a real session reads and answers the engine
+                Warmup.run(createBot(botName), 1, games, WARMUP_TURN_BUDGET_MILLIS);
+                games++;
+            }
+            System.err.println("Warmed up " + botName + " with " + games + " games in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Accept game sessions until the process is stopped
+     *
+     * @param port port on the local machine to listen on
+     */
+    public void serve(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.err.println("Serving " + botNames + " on port " + server.getLocalPort());
+        try {
+            while (true) {
+                final Socket socket = server.accept();
+                executor.execute(new Runnable() {
+                    public void run() {
+                        session(socket);
+                    }
+                });
+            }
+        } finally {
+            server.close();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Play one game over a connection
+     */
+    private void session(Socket socket) {
+        String botName = null;
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            PrintStream out = new PrintStream(socket.getOutputStream(), false, "ISO-8859-1");
+
+            botName = readLine(in);
+            if (botName == null || !botNames.contains(botName)) {
+                out.print("error not serving " + botName + "\n");
+                out.flush();
+                return;
+            }
+            out.print(OK + "\n");
+            out.flush();
+
+            new GameClient(createBot(botName), in, out, System.err).play();
+        } catch (Exception e) {
+            System.err.println("Session of " + botName + " failed: " + e);
+            e.printStackTrace();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The session is over either way
+            }
+        }
+    }
+
+    /**
+     * Read a line of the handshake, without the newline, or null if the stream ended first
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0)
+                return null;
+            if (c != '\r')
+                line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    static Bot createBot(String name) {
+        try {
+            return (Bot) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown bot: " + name, e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int warmupSeconds = DEFAULT_WARMUP_SECONDS;
+        List<String> botNames = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-warmup"))
+                warmupSeconds = Integer.parseInt(args[++i]);
+            else
+                botNames.add(args[i]);
+        }
+
+        if (botNames.isEmpty()) {
+            System.err.println("Usage: java planetWarsAPI.BotServer [-port N] [-warmup seconds] BotClass...");
+            System.exit(1);
+        }
+        for (String botName : botNames)
+            createBot(botName);
+
+        BotServer server = new BotServer(botNames);
+        server.warmUp(warmupSeconds * 1000L);
+        server.serve(port);
+    }
+}
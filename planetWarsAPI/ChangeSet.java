@@ -0,0 +1,166 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+/**
+ * What changed from the state of one turn to the state of the next: the planets whose owner or ships changed,
+ * and the fleets that were launched in between.
+ * <p>
+ * From one turn to the next most planets keep their owner, and neutral planets keep their ships, so a bot that
+ * keeps what it derived from the previous turn only has to redo it for the changed planets. A client in stateful
+ * mode (see {@link GameClient#setStateful(boolean)}) hands every turn its change set, through
+ * {@link PlanetWars#getChanges()}:
+ * <pre>{@code
+ * ChangeSet changes = pw.getChanges();
+ * if (changes == null || changes.isNewGame()) {
+ *     // compute everything from scratch
+ * } else {
+ *     for (int k = 0; k < changes.numChanged(); k++)
+ *         update(changes.getChangedPlanet(k));
+ * }
+ * }</pre>
+ * The sets are computed once per turn, in time linear in the number of planets and fleets. Positions and growth
+ * rates never change within a game; when they differ, the states are of different games and the change set
+ * says it is a new game, with every planet changed.
+ *
+ * @version 1.0
+ */
+public final class ChangeSet {
+    private final GameState previous;
+    private final GameState current;
+    private final boolean newGame;
+
+    /**
+     * Ids of the changed planets, in increasing order
+     */
+    private final int[] changed;
+    private final int numChanged;
+
+    /**
+     * Indices in the current state of the fleets launched since the previous turn
+     */
+    private final int[] launched;
+    private final int numLaunched;
+
+    private ChangeSet(GameState previous, GameState current) {
+        this.previous = previous;
+        this.current = current;
+        this.newGame = previous == null || !sameMap(previous, current);
+
+        int[] planets = new int[current.numPlanets()];
+        int count = 0;
+        for (int i = 0; i < planets.length; i++)
+            if (newGame || previous.getOwner(i) != current.getOwner(i)
+                || previous.getNumShips(i) != current.getNumShips(i))
+                planets[count++] = i;
+        changed = planets;
+        numChanged = count;
+
+        int[] fleets = new int[current.numFleets()];
+        count = 0;
+        for (int i = 0; i < fleets.length; i++)
+            if (current.getFleetTotalTrip(i) - current.getFleetTurnsRemaining(i) == 1)
+                fleets[count++] = i;
+        launched = fleets;
+        numLaunched = count;
+    }
+
+    /**
+     * Compute what changed between the states of two turns
+     *
+     * @param previous state of the previous turn, or null if there is none
+     * @param current  state of this turn
+     * @return the changes, a new game if previous is null or of another map
+     */
+    public static ChangeSet between(GameState previous, GameState current) {
+        return new ChangeSet(previous, current);
+    }
+
+    /**
+     * Return whether there is no previous turn of this game, so nothing derived earlier can be kept
+     */
+    public boolean isNewGame() {
+        return newGame;
+    }
+
+    /**
+     * Return the state of the previous turn, or null if there is none
+     */
+    public GameState getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Return the state of this turn
+     */
+    public GameState getCurrent() {
+        return current;
+    }
+
+    /**
+     * Return the number of planets whose owner or ships changed
+     */
+    public int numChanged() {
+        return numChanged;
+    }
+
+    /**
+     * Return the id of a changed planet
+     *
+     * @param k index, from 0 to numChanged() - 1
+     * @return id of the planet, the ids increase with k
+     */
+    public int getChangedPlanet(int k) {
+        return changed[k];
+    }
+
+    /**
+     * Return whether a planet got another owner
+     *
+     * @param planetID id of the planet
+     */
+    public boolean isOwnerChanged(int planetID) {
+        return newGame || previous.getOwner(planetID) != current.getOwner(planetID);
+    }
+
+    /**
+     * Return whether the ships on a planet changed
+     *
+     * @param planetID id of the planet
+     */
+    public boolean isShipsChanged(int planetID) {
+        return newGame || previous.getNumShips(planetID) != current.getNumShips(planetID);
+    }
+
+    /**
+     * Return the number of fleets launched since the previous turn. A fleet that arrived within one turn
+     * is not among them, as the engine never shows it.
+     */
+    public int numLaunched() {
+        return numLaunched;
+    }
+
+    /**
+     * Return a fleet launched since the previous turn
+     *
+     * @param k index, from 0 to numLaunched() - 1
+     * @return index of the fleet in the current state
+     */
+    public int getLaunchedFleet(int k) {
+        return launched[k];
+    }
+
+    private static boolean sameMap(GameState a, GameState b) {
+        if (a.numPlanets() != b.numPlanets())
+            return false;
+        for (int i = 0; i < a.numPlanets(); i++)
+            if (a.getX(i) != b.getX(i) || a.getY(i) != b.getY(i) || a.getGrowthRate(i) != b.getGrowthRate(i))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,164 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Distances between all planets of a map, computed once.
+ * <p>
+ * Planets never move, so the distances are computed when they are first needed and then shared
+ * by every copy of the game state, and by the states of later turns on the same map.
+ * For every pair of planets it holds the distance and the number of turns a fleet needs to travel it
+ * (the distance rounded up), and for every planet the other planets sorted from near to far.
+ * <p>
+ * Example, the nearest planet we do not own:
+ * <pre>{@code
+ * DistanceMatrix distances = pw.getDistances();
+ * for (int k = 0; k < distances.numNeighbours(); k++) {
+ *     int planet = distances.getNeighbour(source, k);
+ *     if (pw.getState().getOwner(planet) != PlanetWars.PLAYER)
+ *         return planet;
+ * }
+ * }</pre>
+ *
+ * @version 1.0
+ * @see GameState#getDistances()
+ */
+public final class DistanceMatrix {
+    private final int numPlanets;
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * Row-major matrices, entry source * numPlanets + dest
+     */
+    private final float[] distance;
+    private final int[] turns;
+
+    /**
+     * Per planet, the ids of the other planets from near to far, numPlanets - 1 entries per planet.
+     * Sorted when first asked for, many users only need the distances.
+     */
+    private volatile int[] neighbours;
+
+    DistanceMatrix(GameState state) {
+        numPlanets = state.numPlanets();
+        x = new double[numPlanets];
+        y = new double[numPlanets];
+        for (int i = 0; i < numPlanets; i++) {
+            x[i] = state.getX(i);
+            y[i] = state.getY(i);
+        }
+
+        distance = new float[numPlanets * numPlanets];
+        turns = new int[numPlanets * numPlanets];
+        for (int a = 0; a < numPlanets; a++) {
+            for (int b = a + 1; b < numPlanets; b++) {
+                double dx = x[a] - x[b];
+                double dy = y[a] - y[b];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                int t = (int) Math.ceil(d);
+
+                distance[a * numPlanets + b] = distance[b * numPlanets + a] = (float) d;
+                turns[a * numPlanets + b] = turns[b * numPlanets + a] = t;
+            }
+        }
+    }
+
+    private synchronized int[] sortNeighbours() {
+        if (neighbours != null)
+            return neighbours;
+
+        // Sort by distance, then by id, packed in a long so the sort needs no objects.
+        // Distances are not negative, so their float bits sort in the same order as the floats.
+        int numNeighbours = numNeighbours();
+        int[] sorted = new int[numPlanets * numNeighbours];
+        long[] keys = new long[numNeighbours];
+        for (int a = 0; a < numPlanets; a++) {
+            int k = 0;
+            for (int b = 0; b < numPlanets; b++)
+                if (b != a)
+                    keys[k++] = ((long) Float.floatToIntBits(distance[a * numPlanets + b]) << 32) | b;
+            Arrays.sort(keys);
+            for (k = 0; k < numNeighbours; k++)
+                sorted[a * numNeighbours + k] = (int) keys[k];
+        }
+
+        neighbours = sorted;
+        return sorted;
+    }
+
+    /**
+     * Return whether these distances belong to the planets of the given state
+     */
+    boolean matches(GameState state) {
+        if (state.numPlanets() != numPlanets)
+            return false;
+
+        for (int i = 0; i < numPlanets; i++)
+            if (state.getX(i) != x[i] || state.getY(i) != y[i])
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Return the number of planets
+     *
+     * @return the number of planets
+     */
+    public int numPlanets() {
+        return numPlanets;
+    }
+
+    /**
+     * Return the distance between two planets
+     *
+     * @param source id of the first planet
+     * @param dest   id of the second planet
+     * @return the straight line distance
+     */
+    public float getDistance(int source, int dest) {
+        return distance[source * numPlanets + dest];
+    }
+
+    /**
+     * Return the number of turns a fleet needs to travel between two planets
+     *
+     * @param source id of the source planet
+     * @param dest   id of the destination planet
+     * @return the distance, rounded up
+     */
+    public int getTurns(int source, int dest) {
+        return turns[source * numPlanets + dest];
+    }
+
+    /**
+     * Return the number of neighbours every planet has, all planets but itself
+     *
+     * @return numPlanets - 1
+     */
+    public int numNeighbours() {
+        return Math.max(0, numPlanets - 1);
+    }
+
+    /**
+     * Return the k-th nearest planet of a planet. Planets at the same distance are ordered by id.
+     *
+     * @param planetID id of the planet
+     * @param k        0 for the nearest other planet, up to numNeighbours() - 1 for the furthest
+     * @return id of the neighbour
+     */
+    public int getNeighbour(int planetID, int k) {
+        int[] sorted = neighbours;
+        if (sorted == null)
+            sorted = sortNeighbours();
+        return sorted[planetID * (numPlanets - 1) + k];
+    }
+}
@@ -7,8 +7,19 @@ package planetWarsAPI;
  * this file if you know what you're doing.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @package planetWarsAPI
@@ -24,6 +35,80 @@ import java.io.StringWriter;
  * @version 1.0
  */
 public class GameClient {
+    /**
+     * System property with the file {@link #run()} records the game in
+     */
+    public static final String REPLAY_PROPERTY = "planetwars.replay";
+
+    /**
+     * System property that puts {@link #run()} in stateful mode when it is "true"
+     */
+    public static final String STATEFUL_PROPERTY = "planetwars.stateful";
+
+    private final Bot bot;
+    private final InputStream in;
+    private final OrderSink sink;
+    private long turnBudgetMillis = TurnClock.DEFAULT_BUDGET_MILLIS;
+    private ReplayWriter replay;
+    private boolean stateful;
+
+    /**
+     * Create a client for a bot. Most bots just call {@link #run(Bot)}.
+     *
+     * @param bot Instance of the Bot that will be running
+     */
+    public GameClient(Bot bot) {
+        this.bot = bot;
+        this.in = System.in;
+        this.sink = new StreamOrderSink(System.out, System.err);
+    }
+
+    /**
+     * Create a client for a bot that talks to the engine over other streams than standard input and output,
+     * such as a session of the {@link BotServer}.
+     *
+     * @param bot Instance of the Bot that will be running
+     * @param in  stream the engine writes the game states to
+     * @param out stream the orders are written to
+     * @param log stream for debug messages
+     */
+    public GameClient(Bot bot, InputStream in, PrintStream out, PrintStream log) {
+        this.bot = bot;
+        this.in = in;
+        this.sink = new StreamOrderSink(out, log);
+    }
+
+    /**
+     * Set the time a turn may take. When a turn takes longer, its fallback order is sent.
+     *
+     * @param turnBudgetMillis time budget per turn, in milliseconds
+     */
+    public void setTurnBudget(long turnBudgetMillis) {
+        this.turnBudgetMillis = turnBudgetMillis;
+    }
+
+    /**
+     * Record the game: the state of every turn is written to the replay once the turn is over,
+     * and the replay is closed when the game ends.
+     *
+     * @param replay writer of the replay, or null to not record
+     */
+    public void setReplay(ReplayWriter replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Choose whether every turn comes with what changed since the previous turn (see {@link ChangeSet}).
+     * A bot that keeps what it derived from a turn can then update it, instead of computing it again.
+     * Off by default, as most bots start every turn from scratch.
+     *
+     * @param stateful true to hand out a change set with every turn
+     * @see PlanetWars#getChanges()
+     */
+    public void setStateful(boolean stateful) {
+        this.stateful = stateful;
+    }
+
     /**
      * Start the main bot loop. This is the only thing your bot needs to call
      * in it's main.
@@ -37,29 +122,31 @@ public class GameClient {
      * @param bot Instance of the Bot that will be running
      */
     public static void run(Bot bot) {
-        String line = "";
-        String message = "";
-        int c;
+        new GameClient(bot).run();
+    }
+
+    /**
+     * Start the main bot loop, and stop the program when the bot fails.
+     * <p>
+     * The bot runs on a separate thread, so the client can end the turn on time when the bot does not.
+     * In that case the bot's fallback order (see {@link PlanetWars#setFallbackOrder(int, int)}) is sent,
+     * the bot thread is interrupted, and whatever the bot does later in that turn is discarded. As long as
+     * the bot is still busy with such a turn, later turns do not wait for it: they get the BullyBot order
+     * straight away, so a single slow turn does not make the following ones late too.
+     * <p>
+     * When the system property planetwars.replay names a file, the game is recorded in it (see {@link ReplayWriter}).
+     * When the system property planetwars.stateful is "true", the client is in stateful mode
+     * (see {@link #setStateful(boolean)}).
+     */
+    public void run() {
         try {
-            while ((c = System.in.read()) >= 0) {
-                switch (c) {
-                    case '\n':
-                        if (line.equals("go")) {
-                            PlanetWars pw = new PlanetWars(message);
-                            bot.doTurn(pw);
-                            pw.finishTurn();
-                            message = "";
-                        } else {
-                            message += line + "\n";
-                        }
-                        line = "";
-                        break;
-                    default:
-                        line += (char) c;
-                        break;
-                }
-            }
-        } catch (Exception e) {
+            String replayFile = System.getProperty(REPLAY_PROPERTY);
+            if (replayFile != null && replay == null)
+                setReplay(new ReplayWriter(new File(replayFile)));
+            if (Boolean.getBoolean(STATEFUL_PROPERTY))
+                setStateful(true);
+            play();
+        } catch (Throwable e) {
             StringWriter writer = new StringWriter();
             e.printStackTrace(new PrintWriter(writer));
             String stackTrace = writer.toString();
@@ -67,4 +154,125 @@ public class GameClient {
             System.exit(1); //just stop now. we've got a problem
         }
     }
+
+    /**
+     * Play one game, until the engine closes the input stream. Like {@link #run()}, but a failing bot
+     * ends only this game: its exception is thrown to the caller.
+     *
+     * @throws IOException when reading the input stream fails
+     */
+    public void play() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        GameStateReader reader = new GameStateReader(in, sink);
+        PlanetWars pw;
+        GameState previous = null;
+        BotTurn lastTurn = null;
+        try {
+            while ((pw = reader.nextTurn()) != null) {
+                TurnClock clock = new TurnClock(turnBudgetMillis);
+                pw.setTurnClock(clock);
+                if (stateful) {
+                    pw.setChanges(ChangeSet.between(previous, pw.getState()));
+                    previous = pw.getState();
+                }
+
+                if (lastTurn != null && lastTurn.isBusy()) {
+                    pw.log("WARNING: bot is still busy with an earlier turn, sending fallback order");
+                    pw.expireTurn();
+                    if (replay != null)
+                        record(pw);
+                    continue;
+                }
+
+                lastTurn = new BotTurn(bot, pw);
+                Future<?> turn = executor.submit(lastTurn);
+                try {
+                    turn.get(Math.max(0, clock.getDeadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    pw.finishTurn();
+                } catch (TimeoutException e) {
+                    pw.log("WARNING: turn took more than", turnBudgetMillis, "ms, sending fallback order");
+                    pw.expireTurn();
+                    turn.cancel(true);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error)
+                        throw (Error) e.getCause();
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+
+                if (replay != null)
+                    record(pw);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (replay != null)
+                replay.close();
+        }
+    }
+
+    /**
+     * Add a turn to the replay. A replay that can not be written is given up, the game goes on.
+     */
+    private void record(PlanetWars pw) {
+        try {
+            replay.writeTurn(pw.getState());
+        } catch (IOException e) {
+            stopRecording(pw, e);
+        } catch (IllegalArgumentException e) {
+            stopRecording(pw, e);
+        }
+    }
+
+    private void stopRecording(PlanetWars pw, Exception e) {
+        pw.log("WARNING: stopped recording the replay:", e);
+        try {
+            replay.close();
+        } catch (IOException ignored) {
+            // Nothing more to lose
+        }
+        replay = null;
+    }
+
+    /**
+     * A single call of doTurn, run on the bot thread
+     */
+    private static class BotTurn implements Runnable {
+        private final Bot bot;
+        private final PlanetWars pw;
+
+        /**
+         * Set when doTurn starts and when it returns. A cancelled turn keeps running until the bot gives up.
+         */
+        private volatile boolean started;
+        private volatile boolean finished;
+
+        BotTurn(Bot bot, PlanetWars pw) {
+            this.bot = bot;
+            this.pw = pw;
+        }
+
+        public void run() {
+            started = true;
+            try {
+                bot.doTurn(pw);
+            } finally {
+                finished = true;
+            }
+        }
+
+        /**
+         * Return whether the bot thread is still in this turn. A turn cancelled before it started never runs.
+         */
+        boolean isBusy() {
+            return started && !finished;
+        }
+    }
 }
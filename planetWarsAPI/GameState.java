@@ -0,0 +1,510 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of a game state.
+ * <p>
+ * Planets are stored as parallel primitive arrays indexed by planet id, instead of
+ * a list of Planet objects. Loops over all planets then walk a few contiguous arrays,
+ * which is a lot cheaper for bots that look at many (simulated) states per turn.
+ * <p>
+ * Fleets in flight are stored the same way, as parallel arrays indexed by fleet number.
+ * <p>
+ * PlanetWars is built on top of this class and still hands out Planet objects,
+ * so bots that do not care about speed do not need to know it exists.
+ * <p>
+ * The planets of every owner are also kept in an index, a bitset per owner together with the number of planets,
+ * ships and growth of that owner. It is updated on every change of an owner or number of ships, so counting
+ * and totalling take constant time, and the planets of an owner can be visited without allocating anything:
+ * <pre>{@code
+ * for (int i = state.nextPlanet(PlanetWars.PLAYER, 0); i >= 0; i = state.nextPlanet(PlanetWars.PLAYER, i + 1)) {
+ *     // planet i is ours
+ * }
+ * }</pre>
+ *
+ * @version 1.0
+ * @see PlanetWars#getState()
+ */
+public final class GameState {
+    /**
+     * Initial number of planets to reserve room for
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    private int numPlanets;
+    private int[] owner;
+    private int[] numShips;
+    private int[] growthRate;
+    private double[] x;
+    private double[] y;
+
+    private int numFleets;
+    private int[] fleetOwner;
+    private int[] fleetShips;
+    private int[] fleetSource;
+    private int[] fleetDest;
+    private int[] fleetTotalTrip;
+    private int[] fleetTurnsRemaining;
+
+    /**
+     * Index per owner: a bit per planet it owns, and its number of planets, ships and growth
+     */
+    private long[][] ownerBits;
+    private int[] ownerPlanets;
+    private int[] ownerShips;
+    private int[] ownerGrowth;
+
+    /**
+     * Distances between the planets, computed when first needed and shared with copies
+     */
+    private DistanceMatrix distances;
+
+    /**
+     * Construct an empty game state
+     */
+    public GameState() {
+        owner = new int[INITIAL_CAPACITY];
+        numShips = new int[INITIAL_CAPACITY];
+        growthRate = new int[INITIAL_CAPACITY];
+        x = new double[INITIAL_CAPACITY];
+        y = new double[INITIAL_CAPACITY];
+
+        fleetOwner = new int[INITIAL_CAPACITY];
+        fleetShips = new int[INITIAL_CAPACITY];
+        fleetSource = new int[INITIAL_CAPACITY];
+        fleetDest = new int[INITIAL_CAPACITY];
+        fleetTotalTrip = new int[INITIAL_CAPACITY];
+        fleetTurnsRemaining = new int[INITIAL_CAPACITY];
+
+        ownerBits = new long[PlanetWars.ENEMY + 1][INITIAL_CAPACITY / 64 + 1];
+        ownerPlanets = new int[PlanetWars.ENEMY + 1];
+        ownerShips = new int[PlanetWars.ENEMY + 1];
+        ownerGrowth = new int[PlanetWars.ENEMY + 1];
+    }
+
+    /**
+     * Construct a copy of a game state, which can be modified independently
+     *
+     * @param other The game state to copy data from
+     */
+    public GameState(GameState other) {
+        numPlanets = other.numPlanets;
+        owner = other.owner.clone();
+        numShips = other.numShips.clone();
+        growthRate = other.growthRate.clone();
+        x = other.x.clone();
+        y = other.y.clone();
+
+        numFleets = other.numFleets;
+        fleetOwner = other.fleetOwner.clone();
+        fleetShips = other.fleetShips.clone();
+        fleetSource = other.fleetSource.clone();
+        fleetDest = other.fleetDest.clone();
+        fleetTotalTrip = other.fleetTotalTrip.clone();
+        fleetTurnsRemaining = other.fleetTurnsRemaining.clone();
+
+        ownerBits = new long[other.ownerBits.length][];
+        for (int o = 0; o < ownerBits.length; o++)
+            ownerBits[o] = other.ownerBits[o].clone();
+        ownerPlanets = other.ownerPlanets.clone();
+        ownerShips = other.ownerShips.clone();
+        ownerGrowth = other.ownerGrowth.clone();
+        distances = other.distances;
+    }
+
+    /**
+     * Append a planet, its id is the next free index
+     */
+    void addPlanet(double x, double y, int owner, int numShips, int growthRate) {
+        distances = null;
+        if (numPlanets == this.owner.length) {
+            int capacity = numPlanets * 2;
+            this.owner = Arrays.copyOf(this.owner, capacity);
+            this.numShips = Arrays.copyOf(this.numShips, capacity);
+            this.growthRate = Arrays.copyOf(this.growthRate, capacity);
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+        }
+
+        this.owner[numPlanets] = owner;
+        this.numShips[numPlanets] = numShips;
+        this.growthRate[numPlanets] = growthRate;
+        this.x[numPlanets] = x;
+        this.y[numPlanets] = y;
+
+        if (numPlanets / 64 == ownerBits[0].length)
+            for (int o = 0; o < ownerBits.length; o++)
+                ownerBits[o] = Arrays.copyOf(ownerBits[o], ownerBits[o].length * 2);
+        index(numPlanets, owner);
+        ownerShips[owner] += numShips;
+        numPlanets++;
+    }
+
+    /**
+     * Append a fleet in flight, its number is the next free index
+     */
+    void addFleet(int owner, int numShips, int source, int dest, int totalTripLength, int turnsRemaining) {
+        if (numFleets == fleetOwner.length) {
+            int capacity = numFleets * 2;
+            fleetOwner = Arrays.copyOf(fleetOwner, capacity);
+            fleetShips = Arrays.copyOf(fleetShips, capacity);
+            fleetSource = Arrays.copyOf(fleetSource, capacity);
+            fleetDest = Arrays.copyOf(fleetDest, capacity);
+            fleetTotalTrip = Arrays.copyOf(fleetTotalTrip, capacity);
+            fleetTurnsRemaining = Arrays.copyOf(fleetTurnsRemaining, capacity);
+        }
+
+        fleetOwner[numFleets] = owner;
+        fleetShips[numFleets] = numShips;
+        fleetSource[numFleets] = source;
+        fleetDest[numFleets] = dest;
+        fleetTotalTrip[numFleets] = totalTripLength;
+        fleetTurnsRemaining[numFleets] = turnsRemaining;
+        numFleets++;
+    }
+
+    /**
+     * Add a planet to the index of an owner, without its ships
+     */
+    private void index(int planetID, int newOwner) {
+        if (newOwner >= ownerBits.length) {
+            int owners = newOwner + 1;
+            int words = ownerBits[0].length;
+            ownerBits = Arrays.copyOf(ownerBits, owners);
+            for (int o = 0; o < owners; o++)
+                if (ownerBits[o] == null)
+                    ownerBits[o] = new long[words];
+            ownerPlanets = Arrays.copyOf(ownerPlanets, owners);
+            ownerShips = Arrays.copyOf(ownerShips, owners);
+            ownerGrowth = Arrays.copyOf(ownerGrowth, owners);
+        }
+
+        ownerBits[newOwner][planetID >>> 6] |= 1L << planetID;
+        ownerPlanets[newOwner]++;
+        ownerGrowth[newOwner] += growthRate[planetID];
+    }
+
+    /**
+     * Return the number of planets
+     *
+     * @return the number of planets
+     */
+    public int numPlanets() {
+        return numPlanets;
+    }
+
+    /**
+     * Return the owner of a planet
+     *
+     * @param planetID id of the planet
+     * @return owner of the planet
+     */
+    public int getOwner(int planetID) {
+        return owner[planetID];
+    }
+
+    /**
+     * Return the number of ships stationed at a planet
+     *
+     * @param planetID id of the planet
+     * @return number of ships on the planet
+     */
+    public int getNumShips(int planetID) {
+        return numShips[planetID];
+    }
+
+    /**
+     * Return the growth rate of a planet
+     *
+     * @param planetID id of the planet
+     * @return growth rate of the planet
+     */
+    public int getGrowthRate(int planetID) {
+        return growthRate[planetID];
+    }
+
+    /**
+     * Return the number of fleets in flight
+     *
+     * @return the number of fleets
+     */
+    public int numFleets() {
+        return numFleets;
+    }
+
+    /**
+     * Return the owner of a fleet
+     *
+     * @param fleetID number of the fleet
+     * @return owner of the fleet
+     */
+    public int getFleetOwner(int fleetID) {
+        return fleetOwner[fleetID];
+    }
+
+    /**
+     * Return the number of ships in a fleet
+     *
+     * @param fleetID number of the fleet
+     * @return number of ships in the fleet
+     */
+    public int getFleetShips(int fleetID) {
+        return fleetShips[fleetID];
+    }
+
+    /**
+     * Return the planet a fleet departed from
+     *
+     * @param fleetID number of the fleet
+     * @return id of the source planet
+     */
+    public int getFleetSource(int fleetID) {
+        return fleetSource[fleetID];
+    }
+
+    /**
+     * Return the planet a fleet is flying to
+     *
+     * @param fleetID number of the fleet
+     * @return id of the destination planet
+     */
+    public int getFleetDest(int fleetID) {
+        return fleetDest[fleetID];
+    }
+
+    /**
+     * Return the length of the whole trip of a fleet
+     *
+     * @param fleetID number of the fleet
+     * @return number of turns from source to destination
+     */
+    public int getFleetTotalTrip(int fleetID) {
+        return fleetTotalTrip[fleetID];
+    }
+
+    /**
+     * Return the number of turns until a fleet arrives
+     *
+     * @param fleetID number of the fleet
+     * @return turns until arrival
+     */
+    public int getFleetTurnsRemaining(int fleetID) {
+        return fleetTurnsRemaining[fleetID];
+    }
+
+    /**
+     * Return the total number of ships the given player has in flight.
+     *
+     * @param player id of the player
+     * @return number of ships in fleets of the player
+     */
+    public int getPlayerFleetShips(int player) {
+        int total = 0;
+
+        for (int i = 0; i < numFleets; i++)
+            if (fleetOwner[i] == player)
+                total += fleetShips[i];
+
+        return total;
+    }
+
+    /**
+     * Return the x coordinate of a planet
+     *
+     * @param planetID id of the planet
+     * @return x coordinate of the planet
+     */
+    public double getX(int planetID) {
+        return x[planetID];
+    }
+
+    /**
+     * Return the y coordinate of a planet
+     *
+     * @param planetID id of the planet
+     * @return y coordinate of the planet
+     */
+    public double getY(int planetID) {
+        return y[planetID];
+    }
+
+    /**
+     * Change the owner of a planet.
+     * <p>
+     * Meant for simulations on a copy, the engine never sees this.
+     *
+     * @param planetID id of the planet
+     * @param newOwner the new owner
+     */
+    public void setOwner(int planetID, int newOwner) {
+        int oldOwner = owner[planetID];
+        if (oldOwner == newOwner)
+            return;
+
+        ownerBits[oldOwner][planetID >>> 6] &= ~(1L << planetID);
+        ownerPlanets[oldOwner]--;
+        ownerGrowth[oldOwner] -= growthRate[planetID];
+        ownerShips[oldOwner] -= numShips[planetID];
+
+        index(planetID, newOwner);
+        ownerShips[newOwner] += numShips[planetID];
+        owner[planetID] = newOwner;
+    }
+
+    /**
+     * Change the number of ships on a planet.
+     * <p>
+     * Meant for simulations on a copy, the engine never sees this.
+     *
+     * @param planetID    id of the planet
+     * @param newNumShips the new number of ships
+     */
+    public void setNumShips(int planetID, int newNumShips) {
+        ownerShips[owner[planetID]] += newNumShips - numShips[planetID];
+        numShips[planetID] = newNumShips;
+    }
+
+    /**
+     * Return the total number of ships the given player has on its planets.
+     *
+     * @param player id of the player
+     * @return number of ships owned by player
+     */
+    public int getPlayerShips(int player) {
+        return player < ownerShips.length ? ownerShips[player] : 0;
+    }
+
+    /**
+     * Return the total growth rate of the planets of the given player.
+     *
+     * @param player id of the player
+     * @return ships the player gains per turn
+     */
+    public int getPlayerGrowth(int player) {
+        return player < ownerGrowth.length ? ownerGrowth[player] : 0;
+    }
+
+    /**
+     * Return the number of planets the given player owns.
+     *
+     * @param player id of the player, or PlanetWars.NEUTRAL
+     * @return number of planets
+     */
+    public int countPlanets(int player) {
+        return player < ownerPlanets.length ? ownerPlanets[player] : 0;
+    }
+
+    /**
+     * Return the first planet at or after a given id that is owned by the given player.
+     *
+     * @param player id of the player, or PlanetWars.NEUTRAL
+     * @param from   id to start looking at
+     * @return id of the planet, or -1 if there is none
+     */
+    public int nextPlanet(int player, int from) {
+        if (player >= ownerBits.length)
+            return -1;
+        return nextSetBit(ownerBits[player], from);
+    }
+
+    /**
+     * Return the first planet at or after a given id that is not owned by the given player.
+     *
+     * @param player id of the player
+     * @param from   id to start looking at
+     * @return id of the planet, or -1 if there is none
+     */
+    public int nextPlanetNotOwnedBy(int player, int from) {
+        if (from >= numPlanets)
+            return -1;
+        if (player >= ownerBits.length)
+            return from;
+
+        long[] bits = ownerBits[player];
+        int word = from >>> 6;
+        long inverted = ~bits[word] & (-1L << from);
+        while (inverted == 0) {
+            if (++word == bits.length)
+                return -1;
+            inverted = ~bits[word];
+        }
+
+        int planetID = word * 64 + Long.numberOfTrailingZeros(inverted);
+        return planetID < numPlanets ? planetID : -1;
+    }
+
+    /**
+     * Return the first planet at or after a given id that is owned by any enemy.
+     *
+     * @param from id to start looking at
+     * @return id of the planet, or -1 if there is none
+     */
+    public int nextEnemyPlanet(int from) {
+        int next = -1;
+        for (int o = PlanetWars.ENEMY; o < ownerBits.length; o++) {
+            int planetID = nextSetBit(ownerBits[o], from);
+            if (planetID >= 0 && (next < 0 || planetID < next))
+                next = planetID;
+        }
+        return next;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length)
+            return -1;
+
+        long remaining = bits[word] & (-1L << from);
+        while (remaining == 0) {
+            if (++word == bits.length)
+                return -1;
+            remaining = bits[word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * Return the distances between the planets. They are computed on the first call,
+     * after that this is free, also for copies of this state.
+     *
+     * @return the distances of this map
+     */
+    public DistanceMatrix getDistances() {
+        DistanceMatrix d = distances;
+        if (d == null) {
+            d = new DistanceMatrix(this);
+            distances = d;
+        }
+        return d;
+    }
+
+    /**
+     * Take over the distances of the state of an earlier turn, if it is the same map
+     *
+     * @param previous state of an earlier turn, or null
+     */
+    void reuseDistances(GameState previous) {
+        if (distances == null && previous != null && previous.distances != null
+            && previous.distances.matches(this))
+            distances = previous.distances;
+    }
+
+    /**
+     * Create a Planet object holding the current data of a planet
+     *
+     * @param planetID id of the planet
+     * @return snapshot of the planet
+     */
+    public Planet toPlanet(int planetID) {
+        return new Planet(planetID, owner[planetID], numShips[planetID], growthRate[planetID],
+            x[planetID], y[planetID]);
+    }
+}
@@ -0,0 +1,304 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader for the messages sent by the engine.
+ * <p>
+ * Input is consumed through one reusable byte buffer, and planet and fleet lines are parsed
+ * straight into their numeric fields, so reading a turn does not build a String
+ * per line or per message.
+ * <p>
+ * The protocol is handled the same way the old String based parser did:
+ *   * a line consisting of exactly "go" ends the message
+ *   * everything after a '#' is a comment
+ *   * blank lines are skipped
+ *   * the first malformed line stops parsing, the rest of the message is ignored
+ *
+ * @version 1.0
+ */
+final class GameStateReader {
+    /**
+     * Size of the read buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Powers of ten which are exactly representable as a double
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest number of digits which is parsed without falling back to the JDK parsers
+     */
+    private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+    private static final int MAX_FAST_INT_DIGITS = 9;
+
+    /**
+     * Number of tokens on a planet line
+     */
+    private static final int PLANET_TOKENS = 6;
+
+    /**
+     * Number of tokens on a fleet line
+     */
+    private static final int FLEET_TOKENS = 7;
+
+    private final InputStream in;
+    private final OrderSink sink;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /**
+     * The line currently being read, grown when a longer line comes along
+     */
+    private byte[] line = new byte[128];
+    private int lineLength;
+
+    /**
+     * State of the previous turn, whose distances the next turn can reuse
+     */
+    private GameState previous;
+
+    /**
+     * Create a reader on top of a stream
+     *
+     * @param in stream the engine writes to, usually System.in
+     */
+    GameStateReader(InputStream in) {
+        this(in, OrderSink.STANDARD_OUTPUT);
+    }
+
+    /**
+     * Create a reader on top of a stream, whose turns send their orders to the given sink
+     *
+     * @param in   stream the engine writes to
+     * @param sink receiver of the orders of every turn read
+     */
+    GameStateReader(InputStream in, OrderSink sink) {
+        this.in = in;
+        this.sink = sink;
+    }
+
+    /**
+     * Read the next message of the engine, up to and including the "go" line.
+     *
+     * @return game state described by the message, or null if the stream ended first
+     * @throws IOException when reading the stream fails
+     */
+    PlanetWars nextTurn() throws IOException {
+        PlanetWars pw = new PlanetWars(new GameState(), sink);
+        boolean failed = false;
+
+        while (true) {
+            if (position == limit) {
+                int read = in.read(buffer, 0, buffer.length);
+                if (read < 0)
+                    return null;
+                position = 0;
+                limit = read;
+                continue;
+            }
+
+            byte c = buffer[position++];
+            if (c != '\n') {
+                if (lineLength == line.length) {
+                    byte[] grown = new byte[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, lineLength);
+                    line = grown;
+                }
+                line[lineLength++] = c;
+                continue;
+            }
+
+            if (lineLength == 2 && line[0] == 'g' && line[1] == 'o') {
+                lineLength = 0;
+                pw.getState().reuseDistances(previous);
+                previous = pw.getState();
+                return pw;
+            }
+
+            if (!failed && !parseLine(pw, line, 0, lineLength))
+                failed = true;
+            lineLength = 0;
+        }
+    }
+
+    /**
+     * Parse a single line of a game state and add what it describes to the given instance.
+     *
+     * @param pw    instance to add the parsed planet to
+     * @param bytes buffer holding the line
+     * @param from  offset of the first character of the line
+     * @param to    offset just past the last character of the line, excluding the newline
+     * @return true on success
+     * false on failure
+     */
+    static boolean parseLine(PlanetWars pw, byte[] bytes, int from, int to) {
+        // Remove comment from line if it exists
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '#') {
+                to = i;
+                break;
+            }
+        }
+
+        // Skip if line is empty, using the same notion of whitespace as String.trim()
+        boolean blank = true;
+        for (int i = from; i < to && blank; i++)
+            if ((bytes[i] & 0xff) > ' ')
+                blank = false;
+        if (blank)
+            return true;
+
+        // Tokens are separated by single spaces, trailing separators do not form tokens
+        while (bytes[to - 1] == ' ')
+            to--;
+
+        int numTokens = 1;
+        for (int i = from; i < to; i++)
+            if (bytes[i] == ' ')
+                numTokens++;
+
+        if (from + 1 < to && bytes[from + 1] != ' ')
+            return false;
+        if (bytes[from] == 'F')
+            return numTokens == FLEET_TOKENS && parseFleet(pw, bytes, from + 2, to);
+        if (bytes[from] != 'P')
+            return false;
+
+        // Planet token layout: ["P", x, y, owner, numShips, growthRate]
+        if (numTokens != PLANET_TOKENS)
+            return false;
+
+        int start = from + 2;
+        int end = nextSpace(bytes, start, to);
+        double x = parseDouble(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        double y = parseDouble(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int owner = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int numShips = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int growthRate = parseInt(bytes, start, end);
+
+        pw.addPlanet(x, y, owner, numShips, growthRate);
+        return true;
+    }
+
+    /**
+     * Parse the fields of a fleet line, the part after "F "
+     */
+    private static boolean parseFleet(PlanetWars pw, byte[] bytes, int start, int to) {
+        // Fleet token layout: ["F", owner, numShips, source, destination, totalTripLength, turnsRemaining]
+        int end = nextSpace(bytes, start, to);
+        int owner = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int numShips = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int source = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int dest = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int totalTripLength = parseInt(bytes, start, end);
+        end = nextSpace(bytes, start = end + 1, to);
+        int turnsRemaining = parseInt(bytes, start, end);
+
+        // Fleets belong to one of the two players, the simulations keep no ships in flight for anyone else
+        if (owner != PlanetWars.PLAYER && owner != PlanetWars.ENEMY)
+            return false;
+
+        pw.addFleet(owner, numShips, source, dest, totalTripLength, turnsRemaining);
+        return true;
+    }
+
+    /**
+     * Return the offset of the next space at or after from, or to if there is none
+     */
+    private static int nextSpace(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] != ' ')
+            from++;
+        return from;
+    }
+
+    /**
+     * Parse a plain decimal number like "-12.375".
+     * <p>
+     * Numbers with few enough digits are computed as mantissa / 10^decimals, which is
+     * correctly rounded because both operands are exact. Anything else is handed to
+     * Double.parseDouble, so the result and error behaviour always match it.
+     */
+    static double parseDouble(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte c = bytes[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction)
+                    decimals++;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i != to || digits == 0 || digits > MAX_FAST_DOUBLE_DIGITS || decimals >= POWERS_OF_TEN.length)
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a plain integer like "-42", falling back to Integer.parseInt for anything unusual.
+     */
+    static int parseInt(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+
+        int value = 0;
+        int digits = 0;
+        for (; i < to; i++) {
+            byte c = bytes[i];
+            if (c < '0' || c > '9')
+                break;
+            value = value * 10 + (c - '0');
+            digits++;
+        }
+
+        if (i != to || digits == 0 || digits > MAX_FAST_INT_DIGITS)
+            return Integer.parseInt(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+
+        return negative ? -value : value;
+    }
+}
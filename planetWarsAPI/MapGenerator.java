@@ -0,0 +1,85 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.util.Random;
+
+/**
+ * Generates random maps, for benchmarks and for games in the MatchEngine.
+ * <p>
+ * Maps are point symmetric around their center: every planet has a mirror image with the same growth rate
+ * and ships, and the two players start on each other's mirror image. Neither player has an advantage.
+ *
+ * @version 1.0
+ */
+public final class MapGenerator {
+    /**
+     * Width and height of the generated maps
+     */
+    public static final double SIZE = 30;
+
+    private MapGenerator() {
+    }
+
+    /**
+     * Generate the start of a game: both players own one planet with 100 ships, the rest is neutral.
+     *
+     * @param numPlanets number of planets, rounded up to an even number
+     * @param seed       seed of the random generator, the same seed gives the same map
+     * @return the map
+     */
+    public static GameState generate(int numPlanets, long seed) {
+        return generate(numPlanets, seed, 0);
+    }
+
+    /**
+     * Generate a game in progress, in which the players own a part of the planets.
+     *
+     * @param numPlanets    number of planets, rounded up to an even number
+     * @param seed          seed of the random generator, the same seed gives the same map
+     * @param ownedFraction fraction of the planets owned by the players, between 0 and 1
+     * @return the map
+     */
+    public static GameState generate(int numPlanets, long seed, double ownedFraction) {
+        Random random = new Random(seed);
+        GameState state = new GameState();
+
+        state.addPlanet(SIZE / 4, SIZE / 4, PlanetWars.PLAYER, 100, 5);
+        state.addPlanet(SIZE * 3 / 4, SIZE * 3 / 4, PlanetWars.ENEMY, 100, 5);
+
+        for (int i = 2; i < numPlanets; i += 2) {
+            double x = random.nextDouble() * SIZE;
+            double y = random.nextDouble() * SIZE;
+            int numShips = 1 + random.nextInt(100);
+            int growthRate = 1 + random.nextInt(5);
+
+            int owner = PlanetWars.NEUTRAL;
+            int mirrorOwner = PlanetWars.NEUTRAL;
+            if (random.nextDouble() < ownedFraction) {
+                boolean mine = random.nextBoolean();
+                owner = mine ? PlanetWars.PLAYER : PlanetWars.ENEMY;
+                mirrorOwner = mine ? PlanetWars.ENEMY : PlanetWars.PLAYER;
+            }
+
+            state.addPlanet(x, y, owner, numShips, growthRate);
+            state.addPlanet(SIZE - x, SIZE - y, mirrorOwner, numShips, growthRate);
+        }
+
+        return state;
+    }
+
+    /**
+     * Format a map in the format of the engine, "P x y owner ships growth" per planet
+     *
+     * @param state the map
+     * @return the map as text
+     */
+    public static String format(GameState state) {
+        return new PlanetWars(state).toString();
+    }
+}
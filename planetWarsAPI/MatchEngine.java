@@ -0,0 +1,316 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Plays a game between two bots inside this process, without the external engine.
+ * <p>
+ * Every turn both bots get the game state including the fleets in flight, from their own point of view
+ * (each bot is always player 1), by a direct call to doTurn. Their orders are collected through an OrderSink instead of standard output.
+ * This makes it possible to play thousands of games quickly, e.g. to compare bots or tune their parameters.
+ * <p>
+ * The rules follow Planet Wars:
+ * 1. Departure: every order sends half of the ships on the source planet towards the destination.
+ * 2. Advancement: owned planets grow, and every fleet moves one step closer to its destination.
+ *    A fleet needs ceil(distance) turns to arrive.
+ * 3. Arrival: the forces on a planet fight, see {@link Rules}.
+ * A player without planets and fleets loses. Ordering from a planet you do not own, or crashing, loses
+ * immediately. At the turn limit the player with the most ships wins.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * MatchEngine engine = new MatchEngine(200);
+ * MatchResult result = engine.play(new BullyBot(), new RandomBot(), MatchEngine.loadMap(Paths.get("map1.txt")));
+ * }</pre>
+ *
+ * @version 1.0
+ */
+public class MatchEngine {
+    /**
+     * Turn limit of a game, if none is given
+     */
+    public static final int DEFAULT_MAX_TURNS = 200;
+
+    private final int maxTurns;
+    private long turnBudgetMillis = TurnClock.DEFAULT_BUDGET_MILLIS;
+
+    // Fleets in flight, as parallel arrays
+    private int numFleets;
+    private int[] fleetOwner = new int[64];
+    private int[] fleetShips = new int[64];
+    private int[] fleetSource = new int[64];
+    private int[] fleetDest = new int[64];
+    private int[] fleetTotalTrip = new int[64];
+    private int[] fleetTurnsRemaining = new int[64];
+
+    // Orders of the current turn, per player
+    private final OrderBuffer[] orders = {null, new OrderBuffer(), new OrderBuffer()};
+
+    // Forces arriving at a planet in the current turn, per owner
+    private final int[] forces = new int[3];
+
+    /**
+     * Create an engine with the default turn limit
+     */
+    public MatchEngine() {
+        this(DEFAULT_MAX_TURNS);
+    }
+
+    /**
+     * Create an engine
+     *
+     * @param maxTurns number of turns after which the game is decided on ships
+     */
+    public MatchEngine(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Set the time budget the turn clock of the bots shows. The engine waits for the bots anyway,
+     * but bots that search stop when their clock expires.
+     *
+     * @param turnBudgetMillis time budget per turn, in milliseconds
+     */
+    public void setTurnBudget(long turnBudgetMillis) {
+        this.turnBudgetMillis = turnBudgetMillis;
+    }
+
+    /**
+     * Read a map in the format of the engine, "P x y owner ships growth" per planet
+     *
+     * @param path file to read
+     * @return the initial game state
+     * @throws IOException if the file can not be read
+     */
+    public static GameState loadMap(Path path) throws IOException {
+        return new PlanetWars(new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1)).getState();
+    }
+
+    /**
+     * Play a game. The engine is not thread safe, use one engine per thread.
+     *
+     * @param player1 bot playing as player 1
+     * @param player2 bot playing as player 2
+     * @param map     initial state, which is not modified
+     * @return the result of the game
+     */
+    public MatchResult play(Bot player1, Bot player2, GameState map) {
+        // Compute the distances on the map itself, so every game on it and every view shares them
+        map.getDistances();
+        GameState state = new GameState(map);
+        Bot[] bots = {null, player1, player2};
+        long[] decisionNanos = new long[3];
+        numFleets = 0;
+
+        int turn = 0;
+        while (turn < maxTurns) {
+            turn++;
+
+            // Ask both bots for their orders on the same state
+            for (int player = 1; player <= 2; player++) {
+                OrderBuffer buffer = orders[player];
+                buffer.clear();
+
+                PlanetWars view = new PlanetWars(viewFor(state, player), buffer);
+                view.setTurnClock(new TurnClock(turnBudgetMillis));
+                long start = System.nanoTime();
+                try {
+                    bots[player].doTurn(view);
+                } catch (Throwable e) {
+                    // Errors too, like a StackOverflowError or OutOfMemoryError: the bot loses this game,
+                    // and whoever plays many games goes on with the next one
+                    return new MatchResult(3 - player, turn, decisionNanos, "player " + player + " crashed: " + e);
+                }
+                decisionNanos[player] += System.nanoTime() - start;
+            }
+
+            // (1) Departure
+            for (int player = 1; player <= 2; player++) {
+                OrderBuffer buffer = orders[player];
+                for (int i = 0; i < buffer.count; i++) {
+                    int source = buffer.sources[i];
+                    int dest = buffer.dests[i];
+                    if (source < 0 || source >= state.numPlanets() || dest < 0 || dest >= state.numPlanets()
+                        || state.getOwner(source) != player) {
+                        return new MatchResult(3 - player, turn, decisionNanos,
+                            "player " + player + " issued invalid order " + source + " " + dest);
+                    }
+
+                    int ships = state.getNumShips(source) / 2;
+                    if (ships == 0 || source == dest)
+                        continue;
+
+                    state.setNumShips(source, state.getNumShips(source) - ships);
+                    int trip = turnDistance(state, source, dest);
+                    addFleet(player, ships, source, dest, trip, trip);
+                }
+            }
+
+            // (2) Advancement
+            for (int i = 0; i < state.numPlanets(); i++)
+                if (state.getOwner(i) != PlanetWars.NEUTRAL)
+                    state.setNumShips(i, state.getNumShips(i) + state.getGrowthRate(i));
+            for (int i = 0; i < numFleets; i++)
+                fleetTurnsRemaining[i]--;
+
+            // (3) Arrival
+            resolveArrivals(state);
+
+            boolean alive1 = isAlive(state, PlanetWars.PLAYER);
+            boolean alive2 = isAlive(state, PlanetWars.ENEMY);
+            if (!alive1 || !alive2) {
+                int winner = alive1 ? 1 : alive2 ? 2 : 0;
+                return new MatchResult(winner, turn, decisionNanos, "elimination");
+            }
+        }
+
+        int ships1 = totalShips(state, PlanetWars.PLAYER);
+        int ships2 = totalShips(state, PlanetWars.ENEMY);
+        int winner = ships1 > ships2 ? 1 : ships2 > ships1 ? 2 : 0;
+        return new MatchResult(winner, turn, decisionNanos, "turn limit");
+    }
+
+    /**
+     * Return the state as the given player sees it: itself as player 1, its opponent as player 2
+     */
+    private GameState viewFor(GameState state, int player) {
+        GameState view = new GameState(state);
+        if (player == PlanetWars.ENEMY) {
+            for (int i = 0; i < view.numPlanets(); i++) {
+                int owner = view.getOwner(i);
+                if (owner != PlanetWars.NEUTRAL)
+                    view.setOwner(i, 3 - owner);
+            }
+        }
+
+        for (int i = 0; i < numFleets; i++) {
+            int owner = player == PlanetWars.ENEMY ? 3 - fleetOwner[i] : fleetOwner[i];
+            view.addFleet(owner, fleetShips[i], fleetSource[i], fleetDest[i], fleetTotalTrip[i],
+                fleetTurnsRemaining[i]);
+        }
+        return view;
+    }
+
+    /**
+     * Number of turns a fleet needs to travel between two planets
+     */
+    static int turnDistance(GameState state, int source, int dest) {
+        return state.getDistances().getTurns(source, dest);
+    }
+
+    private void addFleet(int owner, int ships, int source, int dest, int totalTrip, int turns) {
+        if (numFleets == fleetOwner.length) {
+            int capacity = numFleets * 2;
+            fleetOwner = Arrays.copyOf(fleetOwner, capacity);
+            fleetShips = Arrays.copyOf(fleetShips, capacity);
+            fleetSource = Arrays.copyOf(fleetSource, capacity);
+            fleetDest = Arrays.copyOf(fleetDest, capacity);
+            fleetTotalTrip = Arrays.copyOf(fleetTotalTrip, capacity);
+            fleetTurnsRemaining = Arrays.copyOf(fleetTurnsRemaining, capacity);
+        }
+
+        fleetOwner[numFleets] = owner;
+        fleetShips[numFleets] = ships;
+        fleetSource[numFleets] = source;
+        fleetDest[numFleets] = dest;
+        fleetTotalTrip[numFleets] = totalTrip;
+        fleetTurnsRemaining[numFleets] = turns;
+        numFleets++;
+    }
+
+    /**
+     * Fight out every planet at which fleets arrived, and remove those fleets
+     */
+    private void resolveArrivals(GameState state) {
+        for (int i = 0; i < numFleets; i++) {
+            if (fleetTurnsRemaining[i] > 0)
+                continue;
+
+            // Gather all fleets arriving at this planet at once
+            int planet = fleetDest[i];
+            Arrays.fill(forces, 0);
+            forces[state.getOwner(planet)] += state.getNumShips(planet);
+            for (int j = i; j < numFleets; j++) {
+                if (fleetTurnsRemaining[j] <= 0 && fleetDest[j] == planet) {
+                    forces[fleetOwner[j]] += fleetShips[j];
+                    fleetTurnsRemaining[j] = -1;
+                }
+            }
+
+            state.setOwner(planet, Rules.battleOwner(forces, state.getOwner(planet)));
+            state.setNumShips(planet, Rules.battleShips(forces));
+        }
+
+        // Remove the fleets that arrived
+        int kept = 0;
+        for (int i = 0; i < numFleets; i++) {
+            if (fleetTurnsRemaining[i] > 0) {
+                fleetOwner[kept] = fleetOwner[i];
+                fleetShips[kept] = fleetShips[i];
+                fleetSource[kept] = fleetSource[i];
+                fleetDest[kept] = fleetDest[i];
+                fleetTotalTrip[kept] = fleetTotalTrip[i];
+                fleetTurnsRemaining[kept] = fleetTurnsRemaining[i];
+                kept++;
+            }
+        }
+        numFleets = kept;
+    }
+
+    private boolean isAlive(GameState state, int player) {
+        if (state.countPlanets(player) > 0)
+            return true;
+        for (int i = 0; i < numFleets; i++)
+            if (fleetOwner[i] == player)
+                return true;
+        return false;
+    }
+
+    private int totalShips(GameState state, int player) {
+        int total = state.getPlayerShips(player);
+        for (int i = 0; i < numFleets; i++)
+            if (fleetOwner[i] == player)
+                total += fleetShips[i];
+        return total;
+    }
+
+    /**
+     * Collects the orders a bot issues during its turn
+     */
+    private static class OrderBuffer implements OrderSink {
+        int count;
+        int[] sources = new int[16];
+        int[] dests = new int[16];
+
+        void clear() {
+            count = 0;
+        }
+
+        public void issueOrder(int source, int destination) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, count * 2);
+                dests = Arrays.copyOf(dests, count * 2);
+            }
+            sources[count] = source;
+            dests[count] = destination;
+            count++;
+        }
+
+        public void finishTurn() {
+        }
+
+        public void log(String message) {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+/**
+ * The outcome of a game played by the MatchEngine.
+ *
+ * @version 1.0
+ * @see MatchEngine
+ */
+public final class MatchResult {
+    private final int winner;
+    private final int turns;
+    private final long[] decisionNanos;
+    private final String reason;
+
+    MatchResult(int winner, int turns, long[] decisionNanos, String reason) {
+        this.winner = winner;
+        this.turns = turns;
+        this.decisionNanos = decisionNanos;
+        this.reason = reason;
+    }
+
+    /**
+     * Return the winner of the game
+     *
+     * @return 1 or 2 for the winning player, 0 for a draw
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Return the number of turns that were played
+     *
+     * @return number of turns
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Return the total time a player spent in doTurn
+     *
+     * @param player 1 or 2
+     * @return time in nanoseconds
+     */
+    public long getDecisionNanos(int player) {
+        return decisionNanos[player];
+    }
+
+    /**
+     * Return why the game ended, e.g. "elimination", "turn limit" or what a player did wrong
+     *
+     * @return description of the end of the game
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MatchResult(winner=%d, turns=%d, reason=%s)", winner, turns, reason);
+    }
+}
@@ -0,0 +1,61 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+/**
+ * Receives everything a bot sends to the engine during a turn.
+ * <p>
+ * Normally this is the external engine, reached through standard output.
+ * The in-process MatchEngine plugs in its own sink to collect the orders directly.
+ *
+ * @version 1.0
+ * @see PlanetWars#issueOrder(int, int)
+ */
+public interface OrderSink {
+    /**
+     * Sends half of the ships on the source planet to the destination planet
+     *
+     * @param source      id of the source planet
+     * @param destination id of the destination planet
+     */
+    void issueOrder(int source, int destination);
+
+    /**
+     * Ends the turn, further orders are discarded
+     */
+    void finishTurn();
+
+    /**
+     * Logs a debug message
+     *
+     * @param message the message
+     */
+    void log(String message);
+
+    /**
+     * Standard output, for instances that are not part of a client or engine: every order and "go" is written
+     * and flushed at once, log messages go to standard error. It keeps nothing between calls, so it can be shared.
+     * A {@link GameClient} gives its turns a {@link StreamOrderSink} of its own, which sends a turn in one write.
+     */
+    OrderSink STANDARD_OUTPUT = new OrderSink() {
+        public void issueOrder(int source, int destination) {
+            System.out.println(source + " " + destination);
+            System.out.flush();
+        }
+
+        public void finishTurn() {
+            System.out.println("go");
+            System.out.flush();
+        }
+
+        public void log(String message) {
+            System.err.println(message);
+            System.err.flush();
+        }
+    };
+}
@@ -7,6 +7,8 @@ package planetWarsAPI;
  * this file if you know what you're doing.
  */
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Locale;
 
 /**
@@ -117,7 +119,54 @@ public class Planet {
      * @return Serialized version of Planet
      */
     String serialize() {
-        return String.format(Locale.US, "P %f %f %d %d %d\n", x, y, owner, numShips, growthRate);
+        StringBuilder s = new StringBuilder(48);
+        serialize(s);
+        return s.toString();
+    }
+
+    /**
+     * Append the serialized Planet to a builder. Formats like "%f" does, but without starting up
+     * a Formatter, which is slow the first time and costs a bot part of its first turn.
+     *
+     * @param s builder to append to
+     */
+    void serialize(StringBuilder s) {
+        s.append("P ");
+        appendFixed(s, x);
+        s.append(' ');
+        appendFixed(s, y);
+        s.append(' ').append(owner)
+            .append(' ').append(numShips)
+            .append(' ').append(growthRate)
+            .append('\n');
+    }
+
+    /**
+     * Append a number with six decimals, rounded half up
+     */
+    private static void appendFixed(StringBuilder s, double value) {
+        // Beyond this the scaled value no longer fits the rounding below exactly
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e9) {
+            s.append(String.format(Locale.US, "%f", value));
+            return;
+        }
+
+        if (Double.doubleToRawLongBits(value) < 0)
+            s.append('-');
+        double magnitude = Math.abs(value);
+        double product = magnitude * 1e6;
+        long scaled = Math.round(product);
+
+        // "%f" rounds the shortest decimal form of the number, which near a tie can round the other way
+        double tie = Math.abs(product - Math.floor(product) - 0.5);
+        if (tie <= 2 * (Math.ulp(magnitude) * 1e6 + Math.ulp(product)))
+            scaled = new BigDecimal(Double.toString(magnitude)).setScale(6, RoundingMode.HALF_UP)
+                .unscaledValue().longValue();
+        s.append(scaled / 1000000).append('.');
+        String fraction = Long.toString(scaled % 1000000);
+        for (int i = fraction.length(); i < 6; i++)
+            s.append('0');
+        s.append(fraction);
     }
 
     /**
@@ -7,6 +7,7 @@ package planetWarsAPI;
  * this file if you know what you're doing.
  */
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -34,13 +35,47 @@ public class PlanetWars {
     public static final int ENEMY   = 2;
 
     /**
-     * List of planets in this instance
+     * Compact state of this instance, holds the actual planet data
      */
-    private ArrayList<Planet> planets;
+    private GameState state;
+
+    /**
+     * Where orders go: standard output, written at once, unless a client or an in-process engine says otherwise
+     */
+    private OrderSink sink = OrderSink.STANDARD_OUTPUT;
+
+    /**
+     * Time left in this turn. Clients and engines set a clock started when the turn began, otherwise the
+     * default budget starts when the bot first looks at the clock.
+     */
+    private TurnClock clock = TurnClock.startingOnFirstUse(TurnClock.DEFAULT_BUDGET_MILLIS);
+
+    /**
+     * Order to send if the bot runs out of time, -1 if the bot did not give one
+     */
+    private int fallbackSource = -1;
+    private int fallbackDestination = -1;
+
+    /**
+     * Number of orders issued this turn
+     */
+    private int ordersIssued;
+
+    /**
+     * Set once the turn has been ended, after that all orders are discarded
+     */
+    private boolean finished;
+
+    /**
+     * What changed since the previous turn, only set by a client in stateful mode
+     */
+    private ChangeSet changes;
 
     /**
      * Cached versions, for performance.
+     * Planet objects are only created when a bot asks for them.
      */
+    private ArrayList<Planet> cachedPlanets;
     private ArrayList<Planet> cachedMyPlanets;
     private ArrayList<Planet> cachedNotMyPlanets;
     private ArrayList<Planet> cachedNeutralPlanets;
@@ -50,7 +85,7 @@ public class PlanetWars {
      * Construct an empty PlanetWars instance
      */
     public PlanetWars() {
-        planets = new ArrayList<Planet>();
+        state = new GameState();
     }
 
     /**
@@ -59,17 +94,74 @@ public class PlanetWars {
      * @param gameState Description of game state, produced by the engine
      */
     public PlanetWars(String gameState) {
-        planets = new ArrayList<Planet>();
+        state = new GameState();
         parseGameState(gameState);
     }
 
+    /**
+     * Construct a PlanetWars instance around an existing compact state.
+     * <p>
+     * The state is not copied, so it should not be modified while this instance is in use.
+     *
+     * @param state compact game state
+     */
+    public PlanetWars(GameState state) {
+        this.state = state;
+    }
+
+    /**
+     * Construct a PlanetWars instance around an existing compact state,
+     * which sends its orders to the given sink instead of the external engine.
+     *
+     * @param state compact game state
+     * @param sink  receiver of the orders
+     * @see MatchEngine
+     */
+    public PlanetWars(GameState state, OrderSink sink) {
+        this.state = state;
+        this.sink = sink;
+    }
+
+    /**
+     * Return the compact representation of this game state.
+     * <p>
+     * Reading planet data from here does not create any objects,
+     * which makes it the fastest way to look at a state.
+     *
+     * @return the compact game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Return the distances between all planets, and the neighbours of every planet sorted by distance.
+     * They are computed once per map, so using them is cheap.
+     *
+     * @return the distances of this map
+     */
+    public DistanceMatrix getDistances() {
+        return state.getDistances();
+    }
+
+    /**
+     * Return the number of turns a fleet needs to travel between two planets
+     *
+     * @param source      source Planet
+     * @param destination destination Planet
+     * @return the distance between the planets, rounded up
+     */
+    public int distance(Planet source, Planet destination) {
+        return state.getDistances().getTurns(source.getID(), destination.getID());
+    }
+
     /**
      * Return the number of planets
      *
      * @return the number of planets
      */
     public int numPlanets() {
-        return planets.size();
+        return state.numPlanets();
     }
 
     /**
@@ -80,7 +172,7 @@ public class PlanetWars {
      * @return planet referenced by id, or null if it did not exist
      */
     public Planet getPlanet(int planetID) {
-        return planets.get(planetID);
+        return getAllPlanets().get(planetID);
     }
 
     /**
@@ -89,7 +181,15 @@ public class PlanetWars {
      * @return list of planets
      */
     public List<Planet> getAllPlanets() {
-        return planets;
+        if (cachedPlanets != null)
+            return cachedPlanets;
+
+        cachedPlanets = new ArrayList<Planet>(state.numPlanets());
+
+        for (int i = 0; i < state.numPlanets(); i++)
+            cachedPlanets.add(state.toPlanet(i));
+
+        return cachedPlanets;
     }
 
     /**
@@ -101,11 +201,11 @@ public class PlanetWars {
         if (cachedMyPlanets != null)
             return cachedMyPlanets;
 
-        cachedMyPlanets = new ArrayList<Planet>();
+        List<Planet> planets = getAllPlanets();
+        cachedMyPlanets = new ArrayList<Planet>(state.countPlanets(PLAYER));
 
-        for (Planet p : planets)
-            if (p.getOwner() == PLAYER)
-                cachedMyPlanets.add(p);
+        for (int i = state.nextPlanet(PLAYER, 0); i >= 0; i = state.nextPlanet(PLAYER, i + 1))
+            cachedMyPlanets.add(planets.get(i));
 
         return cachedMyPlanets;
     }
@@ -119,11 +219,11 @@ public class PlanetWars {
         if (cachedNeutralPlanets != null)
             return cachedNeutralPlanets;
 
-        cachedNeutralPlanets = new ArrayList<Planet>();
+        List<Planet> planets = getAllPlanets();
+        cachedNeutralPlanets = new ArrayList<Planet>(state.countPlanets(NEUTRAL));
 
-        for (Planet p : planets)
-            if (p.getOwner() == NEUTRAL)
-                cachedNeutralPlanets.add(p);
+        for (int i = state.nextPlanet(NEUTRAL, 0); i >= 0; i = state.nextPlanet(NEUTRAL, i + 1))
+            cachedNeutralPlanets.add(planets.get(i));
 
         return cachedNeutralPlanets;
     }
@@ -137,11 +237,11 @@ public class PlanetWars {
         if (cachedEnemyPlanets != null)
             return cachedEnemyPlanets;
 
-        cachedEnemyPlanets = new ArrayList<Planet>();
+        List<Planet> planets = getAllPlanets();
+        cachedEnemyPlanets = new ArrayList<Planet>(state.numPlanets() - state.countPlanets(PLAYER) - state.countPlanets(NEUTRAL));
 
-        for (Planet p : planets)
-            if (p.getOwner() >= ENEMY)
-                cachedEnemyPlanets.add(p);
+        for (int i = state.nextEnemyPlanet(0); i >= 0; i = state.nextEnemyPlanet(i + 1))
+            cachedEnemyPlanets.add(planets.get(i));
 
         return cachedEnemyPlanets;
     }
@@ -155,11 +255,11 @@ public class PlanetWars {
         if (cachedNotMyPlanets != null)
             return cachedNotMyPlanets;
 
-        cachedNotMyPlanets = new ArrayList<Planet>();
+        List<Planet> planets = getAllPlanets();
+        cachedNotMyPlanets = new ArrayList<Planet>(state.numPlanets() - state.countPlanets(PLAYER));
 
-        for (Planet p : planets)
-            if (p.getOwner() != PLAYER)
-                cachedNotMyPlanets.add(p);
+        for (int i = state.nextPlanetNotOwnedBy(PLAYER, 0); i >= 0; i = state.nextPlanetNotOwnedBy(PLAYER, i + 1))
+            cachedNotMyPlanets.add(planets.get(i));
 
         return cachedNotMyPlanets;
     }
@@ -173,13 +273,18 @@ public class PlanetWars {
      *   * The planets are indexed, starting at zero
      *   * You must own the source Planet.
      *     If you order from an enemy Planet, the engine will kick you out immediately.
+     *   * You can issue as many orders per turn as you like. In a game they are collected and sent
+     *     to the engine together, when the turn is finished.
      *
      * @param source      id of the source planet
      * @param destination id of the destination planet
      */
-    public void issueOrder(int source, int destination) {
-        System.out.println("" + source + " " + destination);
-        System.out.flush();
+    public synchronized void issueOrder(int source, int destination) {
+        if (finished)
+            return;
+
+        sink.issueOrder(source, destination);
+        ordersIssued++;
     }
 
     /**
@@ -194,31 +299,143 @@ public class PlanetWars {
         issueOrder(source.getID(), destination.getID());
     }
 
+    /**
+     * Attack a planet from several planets at once.
+     * Half of the ships of every source Planet are sent to the destination Planet.
+     * They arrive together if the sources are equally far away.
+     *
+     * @param sources     source Planets, all owned by you
+     * @param destination destination Planet
+     * @see PlanetWars#issueOrder(int, int)
+     */
+    public void issueOrders(List<Planet> sources, Planet destination) {
+        for (Planet source : sources)
+            issueOrder(source.getID(), destination.getID());
+    }
+
     /**
      * Notify the game engine that we have finished our turn.
      * <p>
      * Make sure you have issued your order before you call this method.
      * All further orders will be discarded by the engine.
      */
-    public void finishTurn() {
-        System.out.println("go");
-        System.out.flush();
+    public synchronized void finishTurn() {
+        if (finished)
+            return;
+
+        finished = true;
+        sink.finishTurn();
     }
 
     /**
-     * Return the total number of ships the given player has.
+     * Return what changed since the previous turn, so a bot can update what it derived from that turn
+     * instead of computing it again.
+     *
+     * @return the changes, or null when the client is not in stateful mode
+     * @see GameClient#setStateful(boolean)
+     */
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    void setChanges(ChangeSet changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Return the clock of this turn, which tells how much time is left.
+     *
+     * @return the clock of this turn
+     */
+    public TurnClock getTurnClock() {
+        return clock;
+    }
+
+    /**
+     * Replace the clock of this turn, e.g. by one that started when the engine said "go"
+     *
+     * @param clock the new clock
+     */
+    void setTurnClock(TurnClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Remember the best order found so far.
+     * <p>
+     * If the turn runs out of time before any order was issued, this order is sent instead.
+     * Searching bots should call this every time they find a better move.
+     *
+     * @param source      id of the source planet
+     * @param destination id of the destination planet
+     */
+    public synchronized void setFallbackOrder(int source, int destination) {
+        fallbackSource = source;
+        fallbackDestination = destination;
+    }
+
+    /**
+     * End a turn that ran out of time. Orders the bot issues after this are discarded.
+     * <p>
+     * If the bot has not issued an order yet, its fallback order is sent. If it did not give one either,
+     * the BullyBot move is sent: the strongest planet attacks the weakest planet we do not own.
+     */
+    synchronized void expireTurn() {
+        if (finished)
+            return;
+
+        if (ordersIssued == 0) {
+            if (fallbackSource < 0)
+                findBullyOrder();
+            if (fallbackSource >= 0)
+                issueOrder(fallbackSource, fallbackDestination);
+        }
+        finishTurn();
+    }
+
+    /**
+     * Make the BullyBot move the fallback order, a cheap move that is never invalid
+     */
+    private void findBullyOrder() {
+        int strongest = 1;
+        int weakest = Integer.MAX_VALUE;
+        int destination = -1;
+
+        for (int i = 0; i < state.numPlanets(); i++) {
+            int numShips = state.getNumShips(i);
+            if (state.getOwner(i) == PLAYER) {
+                if (numShips > strongest) {
+                    strongest = numShips;
+                    fallbackSource = i;
+                }
+            } else if (numShips < weakest) {
+                weakest = numShips;
+                destination = i;
+            }
+        }
+
+        if (destination < 0)
+            fallbackSource = -1;
+        fallbackDestination = destination;
+    }
+
+    /**
+     * Return the total number of ships the given player has, on its planets and in flight.
      *
      * @param player id of the player
      * @return number of ships owned by player
      */
     public int getNumShips(int player) {
-        int numShips = 0;
-
-        for (Planet p : planets)
-            if (p.getOwner() == player)
-                numShips += p.getNumShips();
+        return state.getPlayerShips(player) + state.getPlayerFleetShips(player);
+    }
 
-        return numShips;
+    /**
+     * Return the number of fleets in flight. Their data is in {@link #getState()}.
+     *
+     * @return the number of fleets
+     */
+    public int numFleets() {
+        return state.numFleets();
     }
 
     /**
@@ -229,46 +446,38 @@ public class PlanetWars {
      * false on failure
      */
     private boolean parseGameState(String gameState) {
-        planets.clear();
-        int planetID = 0;
-
-        String[] lines = gameState.split("\n");
-
-        for (String line : lines) {
-            // Remove comment from line if it exists
-            int commentBegin = line.indexOf('#');
-            if (commentBegin >= 0)
-                line = line.substring(0, commentBegin);
-
-            // Skip if line is empty
-            // Required as "".split(" ").length == 1
-            if (line.trim().length() == 0)
-                continue;
-
-            // Skip if line has no tokens
-            String[] tokens = line.split(" ");
-            if (tokens.length == 0)
-                continue;
-
-            if (tokens[0].equals("P")) {
-                // Planet token layout: ["P", x, y, owner, numShips, growthRate]
-                if (tokens.length != 6)
-                    return false;
+        state = new GameState();
+        cachedPlanets = null;
 
-                double x = Double.parseDouble(tokens[1]);
-                double y = Double.parseDouble(tokens[2]);
-                int owner = Integer.parseInt(tokens[3]);
-                int numShips = Integer.parseInt(tokens[4]);
-                int growthRate = Integer.parseInt(tokens[5]);
+        byte[] bytes = gameState.getBytes(StandardCharsets.ISO_8859_1);
+        int lineStart = 0;
 
-                planets.add(new Planet(planetID++, owner, numShips, growthRate, x, y));
-            } else {
-                return false;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                if (!GameStateReader.parseLine(this, bytes, lineStart, i))
+                    return false;
+                lineStart = i + 1;
             }
         }
         return true;
     }
 
+    /**
+     * Append a planet to this instance, its id is the next free index.
+     * <p>
+     * Used while parsing a game state.
+     */
+    void addPlanet(double x, double y, int owner, int numShips, int growthRate) {
+        state.addPlanet(x, y, owner, numShips, growthRate);
+    }
+
+    /**
+     * Add a fleet in flight to the game state
+     */
+    void addFleet(int owner, int numShips, int source, int dest, int totalTripLength, int turnsRemaining) {
+        state.addFleet(owner, numShips, source, dest, totalTripLength, turnsRemaining);
+    }
+
     /**
      * Log list of parameters, concatenated by spaces, to output of engine.
      * <p>
@@ -282,8 +491,7 @@ public class PlanetWars {
         for (Object arg : args)
             s.append(arg).append(" ");
 
-        System.err.println(s.toString());
-        System.err.flush();
+        sink.log(s.toString());
     }
 
     /** Generate a state string from the current instance
@@ -294,8 +502,18 @@ public class PlanetWars {
     public String toString() {
         StringBuilder s = new StringBuilder();
 
-        for (Planet p : planets)
-            s.append(p.serialize());
+        for (Planet p : getAllPlanets())
+            p.serialize(s);
+
+        for (int i = 0; i < state.numFleets(); i++) {
+            s.append("F ").append(state.getFleetOwner(i))
+                .append(' ').append(state.getFleetShips(i))
+                .append(' ').append(state.getFleetSource(i))
+                .append(' ').append(state.getFleetDest(i))
+                .append(' ').append(state.getFleetTotalTrip(i))
+                .append(' ').append(state.getFleetTurnsRemaining(i))
+                .append('\n');
+        }
 
         return s.toString();
     }
@@ -0,0 +1,271 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a replay written by {@link ReplayWriter}, any turn at any time.
+ * <p>
+ * The file is memory mapped, so opening it reads only the header and the index, and the operating system
+ * pages in what is used. A turn is decoded from the keyframe at or before it, so getting a turn costs at most
+ * {@value ReplayWriter#KEYFRAME_INTERVAL} small records, wherever in the game it is. The reader only reads the
+ * mapped file, so one reader can be used by many threads at once.
+ * <p>
+ * Example, the ships of player 1 in every turn:
+ * <pre>{@code
+ * ReplayReader replay = new ReplayReader(new File("game.pwr"));
+ * for (int turn = 0; turn < replay.numTurns(); turn++)
+ *     System.out.println(replay.getState(turn).getPlayerShips(PlanetWars.PLAYER));
+ * }</pre>
+ *
+ * @version 1.0
+ * @see ReplayWriter
+ */
+public final class ReplayReader {
+    /**
+     * Receives the orders of turns read from a replay, and drops them
+     */
+    private static final OrderSink DISCARD = new OrderSink() {
+        public void issueOrder(int source, int destination) {
+        }
+
+        public void finishTurn() {
+        }
+
+        public void log(String message) {
+        }
+    };
+
+    private final ByteBuffer buffer;
+
+    private final int numPlanets;
+    private final double[] x;
+    private final double[] y;
+    private final int[] growthRate;
+
+    /**
+     * Position of the record of every turn
+     */
+    private final int[] offsets;
+    private final boolean complete;
+
+    /**
+     * The last state handed out, whose distances the next one can reuse
+     */
+    private volatile GameState previous;
+
+    /**
+     * Open a replay
+     *
+     * @param file the replay
+     * @throws IllegalArgumentException when the file is not a replay
+     */
+    public ReplayReader(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(file + " is larger than 2 GB");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+
+        int[] cursor = {0};
+        if (buffer.limit() < 4 || buffer.getInt(0) != ReplayWriter.MAGIC)
+            throw new IllegalArgumentException(file + " is not a replay");
+        cursor[0] = 4;
+        int version = readVarint(cursor);
+        if (version != ReplayWriter.VERSION)
+            throw new IllegalArgumentException(file + " has replay version " + version);
+
+        numPlanets = readVarint(cursor);
+        x = new double[numPlanets];
+        y = new double[numPlanets];
+        growthRate = new int[numPlanets];
+        for (int i = 0; i < numPlanets; i++) {
+            x[i] = buffer.getDouble(cursor[0]);
+            y[i] = buffer.getDouble(cursor[0] + 8);
+            cursor[0] += 16;
+            growthRate[i] = readVarint(cursor);
+        }
+
+        int end = buffer.limit();
+        complete = end - cursor[0] >= ReplayWriter.FOOTER_SIZE
+            && buffer.getInt(end - 4) == ReplayWriter.INDEX_MAGIC;
+        offsets = complete ? readIndex(end) : scanRecords(cursor[0]);
+    }
+
+    /**
+     * Read the index of a closed replay
+     */
+    private int[] readIndex(int end) {
+        int indexPosition = (int) buffer.getLong(end - ReplayWriter.FOOTER_SIZE);
+        int turns = buffer.getInt(end - 8);
+        int[] index = new int[turns];
+        for (int i = 0; i < turns; i++)
+            index[i] = (int) buffer.getLong(indexPosition + i * 8);
+        return index;
+    }
+
+    /**
+     * Find the records of a replay without index, by walking them
+     */
+    private int[] scanRecords(int position) {
+        int[] index = new int[256];
+        int turns = 0;
+        int[] cursor = {position};
+        while (cursor[0] < buffer.limit()) {
+            int start = cursor[0];
+            byte type = buffer.get(cursor[0]++);
+            if (type != ReplayWriter.KEYFRAME && type != ReplayWriter.DELTA)
+                break;
+            int length;
+            try {
+                length = readVarint(cursor);
+            } catch (IndexOutOfBoundsException e) {
+                break;
+            }
+            if (length < 0 || cursor[0] + length > buffer.limit())
+                break;
+
+            if (turns == index.length)
+                index = Arrays.copyOf(index, turns * 2);
+            index[turns++] = start;
+            cursor[0] += length;
+        }
+        return Arrays.copyOf(index, turns);
+    }
+
+    /**
+     * Return the number of turns in the replay
+     */
+    public int numTurns() {
+        return offsets.length;
+    }
+
+    /**
+     * Return the number of planets of the map
+     */
+    public int numPlanets() {
+        return numPlanets;
+    }
+
+    /**
+     * Return whether the replay was closed properly. If not, the game may have gone on after its last turn.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Return the state at the start of a turn
+     *
+     * @param turn turn number, from 0
+     * @return a new state, owned by the caller
+     */
+    public GameState getState(int turn) {
+        if (turn < 0 || turn >= offsets.length)
+            throw new IndexOutOfBoundsException("Turn " + turn + " of " + offsets.length);
+
+        int[] owner = new int[numPlanets];
+        int[] ships = new int[numPlanets];
+        int[] cursor = new int[1];
+        for (int t = turn - turn % ReplayWriter.KEYFRAME_INTERVAL; t < turn; t++) {
+            cursor[0] = offsets[t];
+            readPlanets(cursor, owner, ships);
+        }
+        cursor[0] = offsets[turn];
+        readPlanets(cursor, owner, ships);
+
+        GameState state = new GameState();
+        for (int i = 0; i < numPlanets; i++)
+            state.addPlanet(x[i], y[i], owner[i], ships[i], growthRate[i]);
+
+        int numFleets = readVarint(cursor);
+        for (int i = 0; i < numFleets; i++) {
+            int fleetOwner = readVarint(cursor);
+            int fleetShips = readVarint(cursor);
+            int source = readVarint(cursor);
+            int dest = readVarint(cursor);
+            int totalTrip = readVarint(cursor);
+            state.addFleet(fleetOwner, fleetShips, source, dest, totalTrip, readVarint(cursor));
+        }
+
+        state.reuseDistances(previous);
+        previous = state;
+        return state;
+    }
+
+    /**
+     * Return a turn as the bots see it, with its orders going nowhere
+     *
+     * @param turn turn number, from 0
+     * @return the turn
+     */
+    public PlanetWars getTurn(int turn) {
+        return new PlanetWars(getState(turn), DISCARD);
+    }
+
+    /**
+     * Apply the planets of a record to the arrays, leaving the cursor at its fleets
+     */
+    private void readPlanets(int[] cursor, int[] owner, int[] ships) {
+        byte type = buffer.get(cursor[0]++);
+        readVarint(cursor);
+
+        if (type == ReplayWriter.KEYFRAME) {
+            for (int i = 0; i < numPlanets; i++) {
+                owner[i] = readVarint(cursor);
+                ships[i] = readVarint(cursor);
+            }
+        } else {
+            int changed = readVarint(cursor);
+            int planet = -1;
+            for (int k = 0; k < changed; k++) {
+                planet += readVarint(cursor) + 1;
+                owner[planet] = readVarint(cursor);
+                int delta = readVarint(cursor);
+                ships[planet] += (delta >>> 1) ^ -(delta & 1);
+            }
+        }
+    }
+
+    private int readVarint(int[] cursor) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(cursor[0]++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    /**
+     * Print a turn of a replay in the format of the engine, or the number of turns
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java planetWarsAPI.ReplayReader replay.pwr [turn]");
+            System.exit(1);
+        }
+
+        ReplayReader replay = new ReplayReader(new File(args[0]));
+        if (args.length == 1) {
+            System.out.println(replay.numTurns() + " turns, " + replay.numPlanets() + " planets"
+                + (replay.isComplete() ? "" : ", not closed"));
+            return;
+        }
+        System.out.print(replay.getTurn(Integer.parseInt(args[1])));
+    }
+}
@@ -0,0 +1,292 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes a game as a compact binary replay, to be read back with {@link ReplayReader}.
+ * <p>
+ * Planets never move, so their positions and growth rates are written once, in a header. After that every turn
+ * is a record. Every {@value #KEYFRAME_INTERVAL} turns the record is a keyframe with the owner and ships of every
+ * planet; in between, a record only holds the planets that changed since the previous turn. Fleets change every
+ * turn and are written in full. All numbers but the positions are varints, so most take a single byte.
+ * Closing the writer adds an index with the position of every record, which lets the reader go to any turn at once.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header:   int magic "PWRP", varint version, varint planets, per planet: double x, double y, varint growth
+ * record:   byte type, varint length of the rest, then
+ *           keyframe: per planet: varint owner, varint ships
+ *           delta:    varint changed planets, per planet: varint gap since the previous changed id,
+ *                     varint owner, zigzag varint change of ships
+ *           both:     varint fleets, per fleet: varint owner, ships, source, destination, trip length, turns left
+ * index:    per turn: long position of its record
+ * footer:   long position of the index, int turns, int magic "PWRI"
+ * </pre>
+ * A replay that was not closed, because the bot was stopped, has no index. The reader finds its records by
+ * walking them, and the last, unfinished record is dropped.
+ * <p>
+ * Games played through {@link GameClient} are recorded when the system property planetwars.replay names a file:
+ * <pre>
+ * java -Dplanetwars.replay=game.pwr LookaheadBot
+ * </pre>
+ * Text logs of the engine protocol, a state per turn ended by "go", are converted with:
+ * <pre>
+ * java planetWarsAPI.ReplayWriter game.txt game.pwr
+ * </pre>
+ *
+ * @version 1.0
+ * @see ReplayReader
+ */
+public final class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x50575250;
+    static final int INDEX_MAGIC = 0x50575249;
+    static final int VERSION = 1;
+
+    /**
+     * Types of turn records
+     */
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    /**
+     * Number of turns from one keyframe to the next. The reader decodes at most this many records for a turn.
+     */
+    static final int KEYFRAME_INTERVAL = 32;
+
+    /**
+     * Size of the footer at the end of a closed replay
+     */
+    static final int FOOTER_SIZE = 16;
+
+    private final OutputStream out;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Owner and ships of every planet in the previous turn
+     */
+    private int numPlanets = -1;
+    private int[] owner;
+    private int[] ships;
+
+    /**
+     * Position of the record of every turn
+     */
+    private long[] offsets = new long[256];
+    private int numTurns;
+
+    /**
+     * Record being built
+     */
+    private byte[] record = new byte[1024];
+    private int size;
+
+    /**
+     * Create a replay file, replacing an existing one
+     *
+     * @param file the file
+     */
+    public ReplayWriter(File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * Write a replay to a stream
+     *
+     * @param out the stream, closed by {@link #close()}
+     */
+    public ReplayWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+    }
+
+    /**
+     * Return the number of turns written
+     */
+    public int numTurns() {
+        return numTurns;
+    }
+
+    /**
+     * Add the state of the next turn. Its planets have to be the ones of the earlier turns.
+     * The turn is written through to the stream, so it is not lost when the process is stopped.
+     *
+     * @param state state at the start of the turn
+     */
+    public void writeTurn(GameState state) throws IOException {
+        if (closed)
+            throw new IllegalStateException("Replay is closed");
+        if (numPlanets < 0)
+            writeHeader(state);
+        else if (state.numPlanets() != numPlanets)
+            throw new IllegalArgumentException("Turn " + numTurns + " has " + state.numPlanets()
+                + " planets, the replay has " + numPlanets);
+
+        size = 0;
+        boolean keyframe = numTurns % KEYFRAME_INTERVAL == 0;
+        if (keyframe) {
+            for (int i = 0; i < numPlanets; i++) {
+                owner[i] = state.getOwner(i);
+                ships[i] = state.getNumShips(i);
+                putVarint(owner[i]);
+                putVarint(ships[i]);
+            }
+        } else {
+            int changed = 0;
+            for (int i = 0; i < numPlanets; i++)
+                if (state.getOwner(i) != owner[i] || state.getNumShips(i) != ships[i])
+                    changed++;
+
+            putVarint(changed);
+            int last = -1;
+            for (int i = 0; i < numPlanets; i++) {
+                if (state.getOwner(i) == owner[i] && state.getNumShips(i) == ships[i])
+                    continue;
+                putVarint(i - last - 1);
+                putVarint(state.getOwner(i));
+                putVarint(zigzag(state.getNumShips(i) - ships[i]));
+                owner[i] = state.getOwner(i);
+                ships[i] = state.getNumShips(i);
+                last = i;
+            }
+        }
+
+        putVarint(state.numFleets());
+        for (int i = 0; i < state.numFleets(); i++) {
+            putVarint(state.getFleetOwner(i));
+            putVarint(state.getFleetShips(i));
+            putVarint(state.getFleetSource(i));
+            putVarint(state.getFleetDest(i));
+            putVarint(state.getFleetTotalTrip(i));
+            putVarint(state.getFleetTurnsRemaining(i));
+        }
+
+        if (numTurns == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[numTurns++] = position;
+
+        int payload = size;
+        write(keyframe ? KEYFRAME : DELTA);
+        writeVarint(payload);
+        out.write(record, 0, payload);
+        position += payload;
+        out.flush();
+    }
+
+    /**
+     * Write the index and close the stream
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            if (numPlanets < 0)
+                writeHeader(new GameState());
+
+            long indexPosition = position;
+            for (int i = 0; i < numTurns; i++)
+                writeLong(offsets[i]);
+            writeLong(indexPosition);
+            writeInt(numTurns);
+            writeInt(INDEX_MAGIC);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeHeader(GameState state) throws IOException {
+        numPlanets = state.numPlanets();
+        owner = new int[numPlanets];
+        ships = new int[numPlanets];
+
+        writeInt(MAGIC);
+        writeVarint(VERSION);
+        writeVarint(numPlanets);
+        for (int i = 0; i < numPlanets; i++) {
+            writeLong(Double.doubleToLongBits(state.getX(i)));
+            writeLong(Double.doubleToLongBits(state.getY(i)));
+            writeVarint(state.getGrowthRate(i));
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private void putVarint(int value) {
+        if (size + 5 > record.length)
+            record = Arrays.copyOf(record, record.length * 2);
+        while ((value & ~0x7F) != 0) {
+            record[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        record[size++] = (byte) value;
+    }
+
+    private void write(int b) throws IOException {
+        out.write(b);
+        position++;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write(value);
+    }
+
+    private void writeInt(int value) throws IOException {
+        write(value >>> 24);
+        write(value >>> 16);
+        write(value >>> 8);
+        write(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * Convert a text log, a state per turn in the format of the engine, to a replay
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java planetWarsAPI.ReplayWriter log.txt replay.pwr");
+            System.exit(1);
+        }
+
+        GameStateReader reader = new GameStateReader(Files.newInputStream(new File(args[0]).toPath()));
+        ReplayWriter writer = new ReplayWriter(new File(args[1]));
+        try {
+            PlanetWars pw;
+            while ((pw = reader.nextTurn()) != null)
+                writer.writeTurn(pw.getState());
+        } finally {
+            writer.close();
+        }
+
+        long textSize = new File(args[0]).length();
+        long replaySize = new File(args[1]).length();
+        System.err.println(String.format(Locale.US, "%d turns, %d bytes, %.1f%% of the text log",
+            writer.numTurns(), replaySize, textSize == 0 ? 0 : 100.0 * replaySize / textSize));
+    }
+}
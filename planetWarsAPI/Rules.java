@@ -0,0 +1,75 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+/**
+ * The battle rule of Planet Wars, shared by the MatchEngine and simulations.
+ * <p>
+ * When fleets arrive at a planet, all forces on it fight at once: the ships on the planet for its owner,
+ * and the arriving ships of every player. The largest force wins, and is left with the difference with
+ * the second largest force. If the two largest forces are equal, the planet keeps its owner, with no ships left.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * int[] forces = new int[3];
+ * forces[owner] += shipsOnPlanet;
+ * forces[fleetOwner] += fleetShips; // for every arriving fleet
+ * int newOwner = Rules.battleOwner(forces, owner);
+ * int newShips = Rules.battleShips(forces);
+ * }</pre>
+ *
+ * @version 1.0
+ */
+public final class Rules {
+    private Rules() {
+    }
+
+    /**
+     * Return who owns a planet after a battle
+     *
+     * @param forces       number of ships per owner, indexed by owner
+     * @param currentOwner owner of the planet before the battle
+     * @return owner after the battle
+     */
+    public static int battleOwner(int[] forces, int currentOwner) {
+        int first = 0;
+        int second = -1;
+        for (int owner = 1; owner < forces.length; owner++) {
+            if (forces[owner] > forces[first]) {
+                second = first;
+                first = owner;
+            } else if (second < 0 || forces[owner] > forces[second]) {
+                second = owner;
+            }
+        }
+
+        if (second >= 0 && forces[first] == forces[second])
+            return currentOwner;
+        return first;
+    }
+
+    /**
+     * Return the number of ships left on a planet after a battle
+     *
+     * @param forces number of ships per owner, indexed by owner
+     * @return ships of the winner minus ships of the runner-up
+     */
+    public static int battleShips(int[] forces) {
+        int first = 0;
+        int second = 0;
+        for (int force : forces) {
+            if (force > first) {
+                second = first;
+                first = force;
+            } else if (force > second) {
+                second = force;
+            }
+        }
+        return first - second;
+    }
+}
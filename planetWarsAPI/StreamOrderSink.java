@@ -0,0 +1,90 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Sends the orders of a turn to the engine over a stream, all at once.
+ * <p>
+ * Orders are collected in a buffer and only written when the turn is finished, together with "go",
+ * in a single write and flush. However many orders a bot issues, a turn costs one system call.
+ * The buffer holds the orders of one turn, so every client needs a sink of its own.
+ *
+ * @version 1.0
+ * @see GameClient
+ */
+public final class StreamOrderSink implements OrderSink {
+    private static final byte[] GO = {'g', 'o', '\n'};
+
+    private final PrintStream out;
+    private final PrintStream log;
+
+    /**
+     * Orders of the current turn, as text
+     */
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    /**
+     * Create a sink
+     *
+     * @param out stream to the engine
+     * @param log stream for debug messages
+     */
+    public StreamOrderSink(PrintStream out, PrintStream log) {
+        this.out = out;
+        this.log = log;
+    }
+
+    public synchronized void issueOrder(int source, int destination) {
+        // Two numbers of at most 11 characters, a space and a newline
+        if (size + 24 > buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+        appendInt(source);
+        buffer[size++] = ' ';
+        appendInt(destination);
+        buffer[size++] = '\n';
+    }
+
+    public synchronized void finishTurn() {
+        if (size + GO.length > buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        System.arraycopy(GO, 0, buffer, size, GO.length);
+        size += GO.length;
+
+        out.write(buffer, 0, size);
+        out.flush();
+        size = 0;
+    }
+
+    public void log(String message) {
+        log.println(message);
+        log.flush();
+    }
+
+    private void appendInt(int value) {
+        long v = value;
+        if (v < 0) {
+            buffer[size++] = '-';
+            v = -v;
+        }
+
+        int digits = 1;
+        for (long rest = v / 10; rest > 0; rest /= 10)
+            digits++;
+
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        size += digits;
+    }
+}
@@ -0,0 +1,113 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+/**
+ * Keeps track of the time left in the current turn.
+ * <p>
+ * The clock starts when the engine finishes sending the game state ("go"). Bots that search can ask it how
+ * much time they have left, and stop in time. If a bot takes longer than the budget anyway, GameClient
+ * sends a fallback order for it, so the bot does not lose by timing out.
+ * <p>
+ * A PlanetWars that no client or engine handed out, such as one a test builds, has a clock that only starts
+ * when it is first asked, so the bot gets the whole budget whenever its turn is played.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * while (pw.getTurnClock().remainingMillis() > 10) {
+ *     // think a bit more
+ * }
+ * }</pre>
+ *
+ * @version 1.0
+ * @see PlanetWars#getTurnClock()
+ */
+public final class TurnClock {
+    /**
+     * Default time budget of a turn. The engine allows one second, the rest is a margin for
+     * sending a fallback order, input/output and garbage collection.
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 900;
+
+    private final long budgetNanos;
+    private volatile boolean started;
+    private long start;
+    private long deadline;
+
+    /**
+     * Start a clock now
+     *
+     * @param budgetMillis time available for the turn, in milliseconds
+     */
+    public TurnClock(long budgetMillis) {
+        this(budgetMillis, true);
+    }
+
+    private TurnClock(long budgetMillis, boolean startNow) {
+        this.budgetNanos = budgetMillis * 1000000L;
+        if (startNow)
+            start();
+    }
+
+    /**
+     * Create a clock that starts when it is first asked for the time
+     *
+     * @param budgetMillis time available for the turn, in milliseconds
+     * @return the clock, not yet started
+     */
+    public static TurnClock startingOnFirstUse(long budgetMillis) {
+        return new TurnClock(budgetMillis, false);
+    }
+
+    private synchronized void start() {
+        if (started)
+            return;
+        start = System.nanoTime();
+        deadline = start + budgetNanos;
+        started = true;
+    }
+
+    /**
+     * Return the moment the turn has to end
+     *
+     * @return deadline, as a value of System.nanoTime()
+     */
+    public long getDeadline() {
+        if (!started)
+            start();
+        return deadline;
+    }
+
+    /**
+     * Return the time left in this turn
+     *
+     * @return remaining time in milliseconds, negative if the budget has been exceeded
+     */
+    public long remainingMillis() {
+        return (getDeadline() - System.nanoTime()) / 1000000L;
+    }
+
+    /**
+     * Return the time spent in this turn so far
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long elapsedMillis() {
+        getDeadline();
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    /**
+     * Return whether the budget of this turn has been used up
+     *
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - getDeadline() >= 0;
+    }
+}
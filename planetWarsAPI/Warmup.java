@@ -0,0 +1,102 @@
+package planetWarsAPI;
+
+/*
+ * You do not need to worry about anything in this file. This is just
+ * helper code that does the boring stuff for you, so you can focus on the
+ * interesting stuff. That being said, you're welcome to change anything in
+ * this file if you know what you're doing.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs bots on made-up game states, the way a real game starts.
+ * <p>
+ * The states are written in the format of the engine and read back through a {@link GameClient}, so everything
+ * a bot uses in its first turns is loaded and run: parsing, the bot's doTurn, and sending the orders.
+ * This is the training run of the class-data sharing archive that bots start with (see scripts/cds-build.sh),
+ * and the {@link BotServer} warms up with it too.
+ * <p>
+ * Usage:
+ * <pre>
+ * java planetWarsAPI.Warmup BotClass...
+ * </pre>
+ *
+ * @version 1.0
+ */
+public final class Warmup {
+    /**
+     * Number of planets of the states, cycled through
+     */
+    private static final int[] PLANETS = {10, 20, 30, 50};
+
+    /**
+     * Fraction of the planets owned by a player in the states
+     */
+    private static final double OWNED_FRACTION = 0.4;
+
+    /**
+     * Turns every bot plays when run from the command line, and the time each may take
+     */
+    private static final int TURNS = 20;
+    private static final long TURN_BUDGET_MILLIS = 20;
+
+    /**
+     * Receives the orders and messages of the bots and drops them
+     */
+    private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+        public void write(int b) {
+        }
+
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    private Warmup() {
+    }
+
+    /**
+     * Let a new instance of a bot play a number of turns, each on a different state
+     *
+     * @param bot              the bot
+     * @param turns            number of turns
+     * @param seed             seed of the first state, the others follow it
+     * @param turnBudgetMillis time a turn may take
+     */
+    public static void run(Bot bot, int turns, long seed, long turnBudgetMillis) {
+        StringBuilder input = new StringBuilder();
+        for (int turn = 0; turn < turns; turn++) {
+            int numPlanets = PLANETS[turn % PLANETS.length];
+            input.append(MapGenerator.format(MapGenerator.generate(numPlanets, seed + turn, OWNED_FRACTION)))
+                .append("go\n");
+        }
+
+        GameClient client = new GameClient(bot,
+            new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.ISO_8859_1)), DISCARD, DISCARD);
+        client.setTurnBudget(turnBudgetMillis);
+        try {
+            client.play();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java planetWarsAPI.Warmup BotClass...");
+            System.exit(1);
+        }
+
+        for (String botName : args) {
+            long start = System.nanoTime();
+            run(BotServer.createBot(botName), TURNS, 0, TURN_BUDGET_MILLIS);
+            System.err.println("Warmed up " + botName + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compile the bots and build an application class-data sharing (AppCDS) archive of the
+# classes they load at startup, from a training run of planetWarsAPI.Warmup.
+# Needs JDK 13 or newer. Start bots with scripts/run-bot.sh to use the archive.
+#
+# Usage: scripts/cds-build.sh [BotClass...]
+set -e
+cd "$(dirname "$0")/.."
+
+BUILD=build
+BOTS=${*:-"BullyBot RandomBot EmptyBot AdaptiveBot LookaheadBot AlphaBetaBot MctsBot"}
+
+rm -rf "$BUILD/classes"
+mkdir -p "$BUILD/classes"
+javac -d "$BUILD/classes" $(find . -name '*.java' -not -path "./$BUILD/*" -not -path './.git/*')
+# Archived classes must come from a jar, not a directory
+jar cf "$BUILD/bots.jar" -C "$BUILD/classes" .
+
+rm -f "$BUILD/bots.jsa"
+java -XX:ArchiveClassesAtExit="$BUILD/bots.jsa" -cp "$BUILD/bots.jar" planetWarsAPI.Warmup $BOTS
+echo "Built $BUILD/bots.jsa"
@@ -0,0 +1,12 @@
+#!/bin/sh
+# Start a bot with the class-data sharing archive of scripts/cds-build.sh, for the engine to run.
+# Without the archive the bot starts as usual.
+#
+# Usage: scripts/run-bot.sh BotClass
+cd "$(dirname "$0")/.."
+
+BUILD=build
+if [ -f "$BUILD/bots.jsa" ]; then
+    exec java -XX:SharedArchiveFile="$BUILD/bots.jsa" -Xshare:auto -cp "$BUILD/bots.jar" "$@"
+fi
+exec java -cp "$BUILD/bots.jar" "$@"
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compare the time until a bot has answered its first turn, without and with the
+# class-data sharing archive of scripts/cds-build.sh.
+#
+# Usage: scripts/startup-benchmark.sh [-runs N] [BotClass...]
+set -e
+cd "$(dirname "$0")/.."
+
+BUILD=build
+if [ ! -f "$BUILD/bots.jsa" ]; then
+    scripts/cds-build.sh
+fi
+
+RUNS=10
+if [ "$1" = "-runs" ]; then
+    RUNS=$2
+    shift 2
+fi
+BOTS=${*:-"BullyBot RandomBot EmptyBot AdaptiveBot LookaheadBot AlphaBetaBot MctsBot"}
+
+java -cp "$BUILD/bots.jar" StartupBenchmarks -runs "$RUNS" -archive "$BUILD/bots.jsa" $BOTS